@@ -0,0 +1,82 @@
+package com.totalcross.carousel.benchmark;
+
+import com.totalcross.carousel.Bezier;
+import com.totalcross.carousel.Carousel.TransitionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Curve construction for every TransitionType preset, and lookup throughput across [0, 1]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BezierBenchmark {
+
+    /** number of evenly spaced times evaluated per lookup invocation */
+    private static final int SWEEP = 1024;
+
+    @Param({Presets.ALL})
+    public String preset;
+
+    private TransitionType type;
+    private Bezier bezier;
+
+    @Setup
+    public void setup() {
+        type = Presets.get(preset);
+        bezier = new Bezier(type.x1, type.y1, type.x2, type.y2);
+    }
+
+    @Benchmark
+    public Bezier construct() {
+        return new Bezier(type.x1, type.y1, type.x2, type.y2);
+    }
+
+    @Benchmark
+    public Bezier constructAdaptive() {
+        return new Bezier(type.x1, type.y1, type.x2, type.y2, Bezier.DEFAULT_MAX_ERROR);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SWEEP)
+    public void getProgression(Blackhole bh) {
+        for (int i = 0; i < SWEEP; i++) {
+            bh.consume(bezier.getProgression((double) i / (SWEEP - 1)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SWEEP)
+    public void getExactProgression(Blackhole bh) {
+        double t = 0;
+        for (int i = 0; i < SWEEP; i++) {
+            t = bezier.solveCurveX((double) i / (SWEEP - 1), t, Bezier.DEFAULT_EPSILON);
+            bh.consume(bezier.sampleCurveY(t));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SWEEP)
+    public void getFixedProgression(Blackhole bh) {
+        for (int i = 0; i < SWEEP; i++) {
+            bh.consume(bezier.getFixedProgression((int) ((long) i * Bezier.FIXED_ONE / (SWEEP - 1))));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.totalcross.carousel.benchmark;
+
+import com.totalcross.carousel.Carousel.TransitionType;
+
+/**
+ * Resolves TransitionType presets by field name, for use as JMH parameters
+ */
+final class Presets {
+
+    static final String ALL = "easeInSine,easeOutSine,easeInOutSine,easeInQuad,easeOutQuad,easeInOutQuad,"
+            + "easeInCubic,easeOutCubic,easeInQuart,easeOutQuart,easeInQuint,easeOutQuint,easeInExpo,"
+            + "easeOutExpo,easeInOutExpo,easeInCirc,easeInOutCirc,easeInBack,easeOutBack,easeInOutBack";
+
+    private Presets() {
+    }
+
+    static TransitionType get(String name) {
+        try {
+            return (TransitionType) TransitionType.class.getField(name).get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unknown transition type " + name, e);
+        }
+    }
+}
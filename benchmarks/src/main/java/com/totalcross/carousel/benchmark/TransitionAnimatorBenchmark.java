@@ -0,0 +1,102 @@
+package com.totalcross.carousel.benchmark;
+
+import com.totalcross.carousel.Carousel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import totalcross.ui.Container;
+import totalcross.ui.MainWindow;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of a carousel transition, driven through the stand-in MainWindow update loop
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionAnimatorBenchmark {
+
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    /** frames of 16ms rendered by one full transition */
+    private static final int FRAMES = 32;
+
+    @Param({"easeInOutBack", "easeOutExpo", "easeInOutSine"})
+    public String preset;
+
+    @Param({"0", "1", "2"})
+    public int easingMode;
+
+    @Param({"3", "50"})
+    public int pages;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private Carousel carousel;
+    private Carousel.TransitionAnimator animator;
+
+    @Setup
+    public void setup() {
+        carousel = new Carousel();
+        MainWindow.getMainWindow().add(carousel);
+        carousel.setRect(0, 0, WIDTH, HEIGHT);
+        for (int i = 0; i < pages; i++) {
+            carousel.add(new Container());
+        }
+        carousel.setAnimationType(Presets.get(preset));
+        carousel.setEasingMode(easingMode);
+        carousel.setSnapshotTransitions(snapshot);
+        carousel.animationTime(FRAMES * 16);
+        animator = carousel.getTransitionAnimator();
+        // run one transition so the animator keeps a FORWARD direction for singleStep
+        animator.begin(Carousel.TransitionAnimator.FORWARD);
+        while (carousel.isAnimating()) {
+            MainWindow.getMainWindow().tick(16);
+        }
+        carousel.setActiveIndex(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void singleStep() {
+        animator.setMovingChildren();
+        for (int i = 1; i <= FRAMES; i++) {
+            animator.singleStep(i * 16);
+        }
+        carousel.setActiveIndex(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void updateFunction(Blackhole bh) {
+        for (int i = 1; i <= FRAMES; i++) {
+            bh.consume(animator.updateFunction(i * 16));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES + 1)
+    public void transition() {
+        MainWindow mainWindow = MainWindow.getMainWindow();
+        animator.begin(Carousel.TransitionAnimator.FORWARD);
+        for (int i = 0; i <= FRAMES; i++) {
+            mainWindow.tick(16);
+        }
+        carousel.setActiveIndex(0);
+    }
+}
@@ -0,0 +1,10 @@
+package totalcross.sys;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Settings {
+    public static double screenDensity = 1.0;
+    public static int touchTolerance = 8;
+}
@@ -0,0 +1,22 @@
+package totalcross.sys;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Vm {
+    /** simulated time added by {@link totalcross.ui.MainWindow#tick(int)} */
+    private static volatile int advanced;
+
+    public static int getTimeStamp() {
+        return (int) (System.nanoTime() / 1000000) + advanced;
+    }
+
+    /**
+     * move the clock forward, so benchmark ticks are spaced by their simulated frame time
+     * @param milliseconds
+     */
+    public static void advance(int milliseconds) {
+        advanced += milliseconds;
+    }
+}
@@ -0,0 +1,8 @@
+package totalcross.ui;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class ClippedContainer extends Container {
+}
@@ -0,0 +1,37 @@
+package totalcross.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Container extends Control {
+    private final List<Control> children = new ArrayList<>();
+
+    public void add(Control control) {
+        children.add(control);
+        control.parent = this;
+    }
+
+    public void remove(Control control) {
+        if (children.remove(control)) control.parent = null;
+    }
+
+    public Control[] getChildren() {
+        return children.toArray(new Control[0]);
+    }
+
+    public void initUI() {
+    }
+
+    public void resetSetPositions() {
+    }
+
+    public void paintChildren() {
+        for (Control child : children) {
+            if (child.visible) child.onPaint(child.getGraphics());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package totalcross.ui;
+
+import totalcross.ui.event.Event;
+import totalcross.ui.event.TimerEvent;
+import totalcross.ui.event.TimerListener;
+import totalcross.sys.Vm;
+import totalcross.ui.gfx.Graphics;
+import totalcross.ui.gfx.Rect;
+import totalcross.ui.image.Image;
+import totalcross.ui.image.ImageException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Control {
+    public static final int DP = 6000000;
+    public static final int PARENTSIZE = 9000000;
+    protected Container parent;
+    protected int x, y, width, height;
+    protected boolean visible = true;
+    public Image offscreen;
+    private final List<TimerListener> timerListeners = new ArrayList<>();
+    final List<TimerEvent> timers = new ArrayList<>();
+    private final Graphics graphics = new Graphics();
+
+    public void setRect(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = resolve(width, parent == null ? 0 : parent.width);
+        this.height = resolve(height, parent == null ? 0 : parent.height);
+        onBoundsChanged(false);
+    }
+
+    protected void onBoundsChanged(boolean screenChanged) {
+    }
+
+    private static int resolve(int value, int parentValue) {
+        return value >= PARENTSIZE - 100000 && value <= PARENTSIZE + 100000 ? parentValue + value - PARENTSIZE : value;
+    }
+
+    public Rect getRect() {
+        return new Rect(x, y, width, height);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Container getParent() {
+        return parent;
+    }
+
+    public Window getParentWindow() {
+        Control c = parent;
+        while (c != null && !(c instanceof Window)) {
+            c = c.parent;
+        }
+        return (Window) c;
+    }
+
+    public void setVisible(boolean visible) {
+        if (this.visible != visible) Window.needsPaint = true;
+        this.visible = visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public Graphics getGraphics() {
+        return graphics;
+    }
+
+    public void postEvent(Event event) {
+        onEvent(event);
+    }
+
+    public void onEvent(Event event) {
+    }
+
+    public void onPaint(Graphics g) {
+    }
+
+    public void takeScreenShot() {
+        try {
+            offscreen = new Image(width, height);
+        } catch (ImageException e) {
+            offscreen = null;
+        }
+    }
+
+    public void releaseScreenShot() {
+        offscreen = null;
+    }
+
+    public TimerEvent addTimer(int millis) {
+        TimerEvent timer = new TimerEvent();
+        timer.target = this;
+        timer.millis = millis;
+        timer.lastTick = Vm.getTimeStamp();
+        timers.add(timer);
+        return timer;
+    }
+
+    public boolean removeTimer(TimerEvent timer) {
+        return timers.remove(timer);
+    }
+
+    public void addTimerListener(TimerListener listener) {
+        timerListeners.add(listener);
+    }
+
+    void fireTimers(int now) {
+        for (TimerEvent timer : timers.toArray(new TimerEvent[0])) {
+            if (now - timer.lastTick < timer.millis) continue;
+            timer.lastTick = now;
+            for (TimerListener listener : timerListeners.toArray(new TimerListener[0])) {
+                timer.dispatch(listener);
+            }
+        }
+    }
+
+    public void repaint() {
+        Window.needsPaint = true;
+    }
+
+    public void repaintNow() {
+        onPaint(graphics);
+    }
+}
@@ -0,0 +1,61 @@
+package totalcross.ui;
+
+import totalcross.sys.Vm;
+import totalcross.ui.event.UpdateListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class MainWindow extends Window {
+    private static final MainWindow mainWindow = new MainWindow();
+    private final List<UpdateListener> updateListeners = new ArrayList<>();
+    private final List<Runnable> mainThreadRunnables = new ArrayList<>();
+
+    public static MainWindow getMainWindow() {
+        return mainWindow;
+    }
+
+    public void addUpdateListener(UpdateListener listener) {
+        updateListeners.add(listener);
+    }
+
+    public void removeUpdateListener(UpdateListener listener) {
+        updateListeners.remove(listener);
+    }
+
+    public void runOnMainThread(Runnable runnable, boolean wait) {
+        synchronized (mainThreadRunnables) {
+            mainThreadRunnables.add(runnable);
+        }
+    }
+
+    /**
+     * Benchmark hook standing in for the TotalCross event loop: fires the timers of the main
+     * window that are due, runs the runnables posted to the main thread and triggers every update
+     * listener once with the given elapsed time, by which the clock of {@link Vm} is advanced.
+     */
+    public void tick(int elapsedMilliseconds) {
+        Vm.advance(elapsedMilliseconds);
+        Runnable[] runnables;
+        synchronized (mainThreadRunnables) {
+            runnables = mainThreadRunnables.toArray(new Runnable[0]);
+            mainThreadRunnables.clear();
+        }
+        for (Runnable runnable : runnables) {
+            runnable.run();
+        }
+        fireTimers(Vm.getTimeStamp());
+        UpdateListener[] listeners = updateListeners.toArray(new UpdateListener[0]);
+        for (UpdateListener listener : listeners) {
+            listener.updateListenerTriggered(elapsedMilliseconds);
+        }
+    }
+
+    public int getUpdateListenerCount() {
+        return updateListeners.size();
+    }
+}
@@ -0,0 +1,13 @@
+package totalcross.ui;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Window extends Container {
+    public static boolean needsPaint;
+
+    public static Window getTopMost() {
+        return MainWindow.getMainWindow();
+    }
+}
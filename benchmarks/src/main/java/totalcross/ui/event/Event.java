@@ -0,0 +1,14 @@
+package totalcross.ui.event;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Event<H extends EventHandler> {
+    public int type;
+    public Object target;
+    public boolean consumed;
+
+    public void dispatch(H listener) {
+    }
+}
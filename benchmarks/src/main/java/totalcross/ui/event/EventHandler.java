@@ -0,0 +1,8 @@
+package totalcross.ui.event;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public interface EventHandler {
+}
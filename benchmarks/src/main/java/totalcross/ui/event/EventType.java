@@ -0,0 +1,11 @@
+package totalcross.ui.event;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public interface EventType {
+    int PEN_DOWN = 200;
+    int PEN_UP = 201;
+    int PEN_DRAG = 202;
+}
@@ -0,0 +1,9 @@
+package totalcross.ui.event;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class PenEvent extends Event<EventHandler> {
+    public int x, y, absoluteX, absoluteY;
+}
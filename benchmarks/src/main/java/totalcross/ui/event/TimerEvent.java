@@ -0,0 +1,15 @@
+package totalcross.ui.event;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class TimerEvent extends Event<TimerListener> {
+    public int millis;
+    public int lastTick;
+
+    @Override
+    public void dispatch(TimerListener listener) {
+        listener.timerTriggered(this);
+    }
+}
@@ -0,0 +1,14 @@
+package totalcross.ui.font;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Font {
+    private static final Font DEFAULT = new Font();
+    public FontMetrics fm = new FontMetrics();
+
+    public static Font getFont(String name, boolean bold, int size) {
+        return DEFAULT;
+    }
+}
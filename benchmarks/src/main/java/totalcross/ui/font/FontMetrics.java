@@ -0,0 +1,13 @@
+package totalcross.ui.font;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class FontMetrics {
+    public int height = 24;
+
+    public int stringWidth(String s) {
+        return s.length() * height / 2;
+    }
+}
@@ -0,0 +1,10 @@
+package totalcross.ui.gfx;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Color {
+    public static final int WHITE = 0xFFFFFF;
+    public static final int BLACK = 0x000000;
+}
@@ -0,0 +1,24 @@
+package totalcross.ui.gfx;
+
+import totalcross.ui.font.Font;
+import totalcross.ui.image.Image;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Graphics {
+    public int foreColor, backColor;
+
+    public void drawImage(Image image, int x, int y) {
+    }
+
+    public void setFont(Font font) {
+    }
+
+    public void drawText(String text, int x, int y) {
+    }
+
+    public void fillRect(int x, int y, int width, int height) {
+    }
+}
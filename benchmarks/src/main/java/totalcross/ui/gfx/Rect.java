@@ -0,0 +1,23 @@
+package totalcross.ui.gfx;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Rect {
+    public int x, y, width, height;
+
+    public Rect() {
+    }
+
+    public Rect(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public boolean intersects(Rect r) {
+        return x < r.x + r.width && r.x < x + width && y < r.y + r.height && r.y < y + height;
+    }
+}
@@ -0,0 +1,9 @@
+package totalcross.ui.icon;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public interface IconType {
+    String fontName();
+}
@@ -0,0 +1,13 @@
+package totalcross.ui.icon;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public enum MaterialIcons implements IconType {
+    _CHEVRON_LEFT, _CHEVRON_RIGHT;
+
+    public String fontName() {
+        return "MaterialIcons";
+    }
+}
@@ -0,0 +1,49 @@
+package totalcross.ui.image;
+
+import totalcross.io.IOException;
+import totalcross.ui.gfx.Graphics;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class Image {
+    private final int width, height;
+    private final Graphics graphics = new Graphics();
+
+    public Image(String path) throws ImageException, IOException {
+        this(1, 1);
+    }
+
+    public Image(byte[] data) throws ImageException {
+        this(1, 1);
+    }
+
+    public Image(int width, int height) throws ImageException {
+        this.width = width;
+        this.height = height;
+    }
+
+    public Image getHwScaledInstance(int width, int height) throws ImageException {
+        return new Image(width, height);
+    }
+
+    public Image getSmoothScaledInstance(int width, int height) throws ImageException {
+        return new Image(width, height);
+    }
+
+    public void applyColor2(int color) {
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Graphics getGraphics() {
+        return graphics;
+    }
+}
@@ -0,0 +1,13 @@
+package totalcross.util;
+
+import totalcross.ui.Control;
+
+/**
+ * Lightweight stand-in for the TotalCross SDK class of the same name, implementing only what
+ * the carousel benchmarks exercise.
+ */
+public class UnitsConverter {
+    public static int toPixels(int value) {
+        return value >= Control.DP - 100000 && value <= Control.DP + 100000 ? value - Control.DP : value;
+    }
+}
@@ -0,0 +1,172 @@
+package com.totalcross.carousel;
+
+import org.junit.Test;
+import totalcross.ui.Container;
+import totalcross.ui.Control;
+import totalcross.ui.MainWindow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Page mutations while transitions run, driven through the stand-in MainWindow
+ */
+public class CarouselPagesTest {
+
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 400;
+
+    private static Carousel carousel(Control ... pages) {
+        Carousel carousel = new Carousel();
+        MainWindow.getMainWindow().add(carousel);
+        carousel.setRect(0, 0, WIDTH, HEIGHT);
+        carousel.add(pages);
+        return carousel;
+    }
+
+    private static Control[] pages(int count) {
+        Control[] pages = new Control[count];
+        for (int i = 0; i < count; i++) {
+            pages[i] = new Container();
+        }
+        return pages;
+    }
+
+    private static void settle(Carousel carousel) {
+        for (int i = 0; i < 1000 && carousel.isAnimating(); i++) {
+            MainWindow.getMainWindow().tick(16);
+        }
+        assertFalse("still animating", carousel.isAnimating());
+    }
+
+    /** the active page fills the viewport and no other page is shown */
+    private static void assertShowsActivePage(Carousel carousel) {
+        Control active = carousel.getPage(carousel.getActiveIndex());
+        assertTrue("active page hidden", active.isVisible());
+        assertEquals(0, active.getX());
+        for (int i = 0; i < carousel.getPageCount(); i++) {
+            Control page = carousel.getPage(i);
+            if(page != active) assertFalse("page " + i + " shown", page.isVisible() && page.getX() < WIDTH);
+        }
+    }
+
+    @Test
+    public void removingTheDestinationSettlesOnTheNextPage() {
+        Control[] pages = pages(3);
+        Carousel carousel = carousel(pages);
+        carousel.getTransitionAnimator().navigate(1);
+        MainWindow.getMainWindow().tick(16);
+        MainWindow.getMainWindow().tick(16);
+        carousel.removePages(1, 1);
+        settle(carousel);
+        assertEquals(1, carousel.getActiveIndex());
+        assertEquals(pages[2], carousel.getPage(1));
+        assertShowsActivePage(carousel);
+    }
+
+    @Test
+    public void removingEveryPageStopsTheTransition() {
+        Carousel carousel = carousel(pages(3));
+        carousel.getTransitionAnimator().navigate(1);
+        MainWindow.getMainWindow().tick(16);
+        carousel.removePages(0, 3);
+        assertFalse(carousel.isAnimating());
+        assertEquals(0, carousel.getPageCount());
+    }
+
+    @Test
+    public void springRetargetsWhenItsDestinationIsRemoved() {
+        Control[] pages = pages(3);
+        Carousel carousel = carousel(pages);
+        carousel.setTransitionAnimator(carousel.new SpringTransitionAnimator(carousel));
+        carousel.getTransitionAnimator().jumpTo(2);
+        MainWindow.getMainWindow().tick(16);
+        carousel.removePages(2, 1);
+        carousel.getTransitionAnimator().navigate(-1);
+        settle(carousel);
+        assertEquals(0, carousel.getActiveIndex());
+        assertShowsActivePage(carousel);
+    }
+
+    @Test
+    public void springLeavingLoopModeMovesBackToThePages() {
+        Carousel carousel = carousel(pages(3));
+        carousel.setTransitionAnimator(carousel.new SpringTransitionAnimator(carousel));
+        carousel.setLoop(true);
+        carousel.getTransitionAnimator().navigate(-1);
+        MainWindow.getMainWindow().tick(16);
+        carousel.setLoop(false);
+        carousel.getTransitionAnimator().navigate(1);
+        settle(carousel);
+        assertEquals(2, carousel.getActiveIndex());
+        assertShowsActivePage(carousel);
+    }
+
+    @Test
+    public void scrollLeavingLoopModeEndsOnThePages() {
+        Carousel carousel = carousel(pages(5));
+        carousel.setPageLayout(1 / 3.0, 0);
+        carousel.setLoop(true);
+        carousel.getTransitionAnimator().navigate(-1);
+        MainWindow.getMainWindow().tick(16);
+        carousel.setLoop(false);
+        settle(carousel);
+        assertEquals(4, carousel.getActiveIndex());
+        Control active = carousel.getPage(4);
+        assertTrue("active page hidden", active.isVisible());
+        assertEquals(WIDTH / 3, active.getX());
+    }
+
+    @Test
+    public void shortRingShowsEachPageNearestToTheActiveOne() {
+        Control[] pages = pages(2);
+        Carousel carousel = carousel(pages);
+        carousel.setPageLayout(1 / 3.0, 0);
+        carousel.setLoop(true);
+        carousel.setActiveIndex(0);
+        assertEquals(WIDTH / 3, pages[0].getX());
+        assertEquals(2 * WIDTH / 3, pages[1].getX());
+        carousel.setActiveIndex(1);
+        assertEquals(WIDTH / 3, pages[1].getX());
+        assertEquals(2 * WIDTH / 3, pages[0].getX());
+    }
+
+    @Test
+    public void insertingDuringATransitionAroundTheRingKeepsItsDestination() {
+        Control[] pages = pages(2);
+        Carousel carousel = carousel(pages);
+        carousel.setPageLayout(1 / 3.0, 0);
+        carousel.setLoop(true);
+        carousel.setActiveIndex(1);
+        // from the last page forward, around the ring to the first one
+        carousel.getTransitionAnimator().navigate(1);
+        MainWindow.getMainWindow().tick(16);
+        carousel.insertPages(1, new Container());
+        settle(carousel);
+        assertEquals(0, carousel.getActiveIndex());
+        assertTrue("active page hidden", pages[0].isVisible());
+        assertEquals(WIDTH / 3, pages[0].getX());
+    }
+
+    @Test
+    public void multiPageLayoutPaintsOnce() {
+        final int[] paints = new int[1];
+        Carousel carousel = new Carousel() {
+            @Override
+            protected void requestPaint() {
+                paints[0]++;
+            }
+        };
+        MainWindow.getMainWindow().add(carousel);
+        carousel.setRect(0, 0, WIDTH, HEIGHT);
+        carousel.add(pages(5));
+        carousel.setPageLayout(1 / 3.0, 0);
+        paints[0] = 0;
+        carousel.setActiveIndex(2);
+        assertEquals(1, paints[0]);
+        paints[0] = 0;
+        carousel.removePages(4, 1);
+        assertEquals(1, paints[0]);
+    }
+}
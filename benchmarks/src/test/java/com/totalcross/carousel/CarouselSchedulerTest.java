@@ -0,0 +1,51 @@
+package com.totalcross.carousel;
+
+import org.junit.Test;
+import totalcross.sys.Vm;
+import totalcross.ui.MainWindow;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scheduler checks driven through the stand-in MainWindow, whose ticks advance the Vm clock
+ */
+public class CarouselSchedulerTest {
+
+    /** ticks of the simulated event loop */
+    private static final int TICK = 100;
+
+    private static class RecordingTimer extends CarouselScheduler.Timer {
+        final int start = Vm.getTimeStamp();
+        int firedAt = -1;
+
+        @Override
+        protected void run() {
+            firedAt = Vm.getTimeStamp() - start;
+        }
+    }
+
+    private static void tickUntilFired(RecordingTimer timer, int limit) {
+        MainWindow mainWindow = MainWindow.getMainWindow();
+        while(timer.firedAt < 0 && Vm.getTimeStamp() - timer.start < limit) {
+            mainWindow.tick(TICK);
+        }
+    }
+
+    @Test
+    public void rescheduleEarlierWakesUpAtTheNewDeadline() {
+        RecordingTimer timer = new RecordingTimer();
+        CarouselScheduler.getInstance().schedule(timer, 5000);
+        CarouselScheduler.getInstance().schedule(timer, 1000);
+        tickUntilFired(timer, 10000);
+        assertTrue("fired at " + timer.firedAt, timer.firedAt >= 1000 && timer.firedAt < 1000 + 2 * TICK);
+    }
+
+    @Test
+    public void rescheduleLaterDoesNotRunAtThePreviousDeadline() {
+        RecordingTimer timer = new RecordingTimer();
+        CarouselScheduler.getInstance().schedule(timer, 1000);
+        CarouselScheduler.getInstance().schedule(timer, 3000);
+        tickUntilFired(timer, 10000);
+        assertTrue("fired at " + timer.firedAt, timer.firedAt >= 3000 && timer.firedAt < 3000 + 2 * TICK);
+    }
+}
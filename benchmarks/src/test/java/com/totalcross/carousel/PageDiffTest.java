@@ -0,0 +1,118 @@
+package com.totalcross.carousel;
+
+import org.junit.Test;
+import totalcross.ui.Container;
+import totalcross.ui.Control;
+import totalcross.ui.MainWindow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Move detection of keyed updates, and submitList applying it to pages of the stand-in MainWindow
+ */
+public class PageDiffTest {
+
+    /** items are "key:version" strings, a new version of a key binds the same page again */
+    private static class RecordingFactory implements CarouselPageFactory<String> {
+        final Map<String, Control> created = new HashMap<String, Control>();
+        final List<String> bound = new ArrayList<String>();
+
+        @Override
+        public Object getKey(String item) {
+            return item.substring(0, item.indexOf(':'));
+        }
+
+        @Override
+        public Control createPage(String item) {
+            Control page = new Container();
+            created.put((String) getKey(item), page);
+            return page;
+        }
+
+        @Override
+        public void bindPage(Control page, String item) {
+            bound.add(item);
+        }
+    }
+
+    private static Carousel carousel() {
+        Carousel carousel = new Carousel();
+        MainWindow.getMainWindow().add(carousel);
+        carousel.setRect(0, 0, 300, 400);
+        return carousel;
+    }
+
+    private static void assertStable(int[] oldPositions, boolean ... expected) {
+        boolean[] stable = PageDiff.stablePages(oldPositions);
+        assertEquals(Arrays.toString(expected), Arrays.toString(stable));
+    }
+
+    @Test
+    public void pagesInALongestIncreasingRunStay() {
+        assertStable(new int[] {3, 0, 1, -1, 2}, false, true, true, false, true);
+    }
+
+    @Test
+    public void pagesAlreadyInOrderAllStay() {
+        assertStable(new int[] {0, 1, 2, 3}, true, true, true, true);
+    }
+
+    @Test
+    public void reversedPagesKeepOnlyOneInPlace() {
+        boolean[] stable = PageDiff.stablePages(new int[] {3, 2, 1, 0});
+        int staying = 0;
+        for (boolean s : stable) {
+            if(s) staying++;
+        }
+        assertEquals(1, staying);
+    }
+
+    @Test
+    public void newPagesNeverStay() {
+        assertStable(new int[] {-1, -1}, false, false);
+        assertStable(new int[0]);
+    }
+
+    @Test
+    public void submitListReusesPagesInTheNewOrder() {
+        Carousel carousel = carousel();
+        RecordingFactory factory = new RecordingFactory();
+        carousel.submitList(Arrays.asList("a:1", "b:1", "c:1", "d:1"), factory);
+        Control a = factory.created.get("a"), b = factory.created.get("b");
+        Control c = factory.created.get("c"), d = factory.created.get("d");
+        carousel.submitList(Arrays.asList("d:1", "a:1", "c:1", "e:1"), factory);
+        assertEquals(5, factory.created.size());
+        assertEquals(4, carousel.getPageCount());
+        assertSame(d, carousel.getPage(0));
+        assertSame(a, carousel.getPage(1));
+        assertSame(c, carousel.getPage(2));
+        assertSame(factory.created.get("e"), carousel.getPage(3));
+        assertNull("removed page still a child", b.getParent());
+        assertTrue(factory.bound.isEmpty());
+    }
+
+    @Test
+    public void submitListBindsChangedItemsAgain() {
+        Carousel carousel = carousel();
+        RecordingFactory factory = new RecordingFactory();
+        carousel.submitList(Arrays.asList("a:1", "b:1"), factory);
+        Control b = factory.created.get("b");
+        carousel.submitList(Arrays.asList("b:2", "a:1"), factory);
+        assertEquals(2, factory.created.size());
+        assertEquals(Arrays.asList("b:2"), factory.bound);
+        assertSame(b, carousel.getPage(0));
+        assertNotNull(b.getParent());
+        assertFalse(carousel.isAnimating());
+    }
+}
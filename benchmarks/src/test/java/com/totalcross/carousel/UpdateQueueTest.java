@@ -0,0 +1,117 @@
+package com.totalcross.carousel;
+
+import org.junit.Test;
+import totalcross.ui.Container;
+import totalcross.ui.Control;
+import totalcross.ui.MainWindow;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Updates posted from several threads, drained on the test thread standing in for the UI thread
+ */
+public class UpdateQueueTest {
+
+    private static final int THREADS = 4;
+    private static final int POSTS = 20000;
+
+    private static class TaggedUpdate implements CarouselUpdate {
+        final int thread, sequence;
+
+        TaggedUpdate(int thread, int sequence) {
+            this.thread = thread;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void apply(Carousel carousel) {
+        }
+    }
+
+    /** starts the producers together, each running the body with its index */
+    private static Thread[] startProducers(final CountDownLatch start, final Producer body) {
+        Thread[] producers = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            producers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                body.run(thread);
+            });
+            producers[i].start();
+        }
+        start.countDown();
+        return producers;
+    }
+
+    private interface Producer {
+        void run(int thread);
+    }
+
+    private static void join(Thread[] threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void concurrentOffersArePolledOnceInPostingOrder() throws InterruptedException {
+        final UpdateQueue queue = new UpdateQueue();
+        Thread[] producers = startProducers(new CountDownLatch(1), thread -> {
+            for (int i = 0; i < POSTS; i++) {
+                queue.offer(new TaggedUpdate(thread, i));
+            }
+        });
+        int[] next = new int[THREADS];
+        int polled = 0;
+        boolean producing = true;
+        // poll while the producers run, then drain what is left
+        while(producing || !queue.isEmpty()) {
+            producing = false;
+            for (Thread producer : producers) {
+                producing |= producer.isAlive();
+            }
+            TaggedUpdate update;
+            while((update = (TaggedUpdate) queue.poll()) != null) {
+                assertEquals(next[update.thread]++, update.sequence);
+                polled++;
+            }
+        }
+        join(producers);
+        assertEquals(THREADS * POSTS, polled);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void pagesPostedFromThreadsAreAllInserted() throws InterruptedException {
+        final Carousel carousel = new Carousel();
+        MainWindow.getMainWindow().add(carousel);
+        carousel.setRect(0, 0, 300, 400);
+        final Control[][] posted = new Control[THREADS][50];
+        Thread[] producers = startProducers(new CountDownLatch(1), thread -> {
+            for (int i = 0; i < posted[thread].length; i++) {
+                posted[thread][i] = new Container();
+                carousel.postInsertPages(Integer.MAX_VALUE, posted[thread][i]);
+            }
+        });
+        join(producers);
+        for (int i = 0; i < 100 && carousel.getPageCount() < THREADS * 50; i++) {
+            MainWindow.getMainWindow().tick(16);
+        }
+        assertEquals(THREADS * 50, carousel.getPageCount());
+        for (Control[] pages : posted) {
+            int previous = -1;
+            for (Control page : pages) {
+                int index = carousel.indexOf(page);
+                assertTrue("page inserted out of order", index > previous);
+                previous = index;
+            }
+        }
+    }
+}
@@ -1,17 +1,38 @@
 package com.totalcross.carousel;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Bezier {
 
-    private double curveSmoothness;
-    public List<Coordinate> points;
+    private final double curveSmoothness;
+    /** control points of the curve, empty when built from a smoothness alone */
+    private final List<Coordinate> controlPoints;
+    /** error the breakpoints are flattened to */
+    private final double maxError;
+    /** flattened curve, built on the first sampled or fixed-point lookup */
+    private volatile Breakpoints breakpoints;
     public final static double DEFAULT_SMOOTHNESS = 0.07f;
+    public final static double DEFAULT_EPSILON = 1e-6;
+    /** progression error used by shared curves, about one pixel on a 1000 pixels wide carousel */
+    public final static double DEFAULT_MAX_ERROR = 0.001;
+    private static final int MIN_SUBDIVISION_DEPTH = 2;
+    /** caps the flattened curve at 2^12 segments, steep spans stop splitting there */
+    private static final int MAX_SUBDIVISION_DEPTH = 12;
+    private static final int NEWTON_ITERATIONS = 8;
+    /** shared curves built by {@link #of(double, double, double, double)}, keyed by control points */
+    private static final Map<Key, Bezier> sharedCurves = new HashMap<Key, Bezier>();
+    /** polynomial coefficients of x(t) and y(t), used by the exact solver */
+    private double ax, bx, cx, ay, by, cy;
+    /** 1.0 in 16.16 fixed point */
+    public final static int FIXED_ONE = 1 << 16;
 
     public static class Coordinate {
-        private double x;
-        private double y;
+        private final double x;
+        private final double y;
 
         public Coordinate() {
             x = 0;
@@ -37,32 +58,198 @@ public class Bezier {
             throw new AssertionError("Smoothness must be between 0 and 1 (both non-inclusive)");
         }
         curveSmoothness = smoothness;
+        controlPoints = Collections.emptyList();
+        maxError = DEFAULT_MAX_ERROR;
     }
 
     public Bezier(double x1, double y1, double x2, double y2) {
-        this(DEFAULT_SMOOTHNESS);
+        this(x1, y1, x2, y2, DEFAULT_MAX_ERROR);
+    }
+
+    /**
+     * Curve whose breakpoints, flattened by adaptive subdivision, are interpolated by
+     * {@link #getProgression(double)} and {@link #getFixedProgression(int)}. They are built on
+     * the first of these lookups, so a curve only solved exactly never flattens.
+     * @param maxError largest accepted distance, in progression units, between the curve and
+     *                 the segments approximating it. See {@link #maxErrorForWidth(int, double)}.
+     */
+    public Bezier(double x1, double y1, double x2, double y2, double maxError) {
+        if (maxError <= 0) {
+            throw new AssertionError("Max error must be positive");
+        }
+        curveSmoothness = DEFAULT_SMOOTHNESS;
+        setCoefficients(x1, y1, x2, y2);
+        controlPoints = controlPoints(x1, y1, x2, y2);
+        this.maxError = maxError;
+    }
+
+    /**
+     * Converts an error in pixels into the progression error expected by the adaptive
+     * constructor, for a transition travelling the given width.
+     */
+    public static double maxErrorForWidth(int width, double maxPixelError) {
+        if (width <= 0) throw new AssertionError("Width must be positive");
+        return maxPixelError / width;
+    }
+
+    private static List<Coordinate> controlPoints(double x1, double y1, double x2, double y2) {
         List<Coordinate> entry = new ArrayList<Coordinate>();
         entry.add(new Coordinate(0, 0));
         entry.add(new Coordinate(x1, y1));
         entry.add(new Coordinate(x2, y2));
         entry.add(new Coordinate(1, 1));
-        points = calculateCurve(entry);
-        for (Coordinate c :
-                points) {
-            System.out.println(c.x + "\t" + c.y);
+        return entry;
+    }
+
+    private void setCoefficients(double x1, double y1, double x2, double y2) {
+        cx = 3 * x1;
+        bx = 3 * (x2 - x1) - cx;
+        ax = 1 - cx - bx;
+        cy = 3 * y1;
+        by = 3 * (y2 - y1) - cy;
+        ay = 1 - cy - by;
+    }
+
+    /**
+     * points of the line segments approximating the curve, from (0, 0) to (1, 1)
+     * @return an unmodifiable list
+     */
+    public List<Coordinate> getPoints() {
+        return breakpoints().points;
+    }
+
+    /**
+     * number of line segments approximating the curve, which are the ones
+     * {@link #getProgression(double)} interpolates
+     */
+    public int getSegmentCount() {
+        return breakpoints().points.size() - 1;
+    }
+
+    /**
+     * the flattened curve, built on first use. Concurrent first uses may each build it, they
+     * all publish the same breakpoints.
+     */
+    private Breakpoints breakpoints() {
+        Breakpoints built = breakpoints;
+        if (built == null) {
+            built = new Breakpoints(controlPoints.isEmpty() ?
+                    Collections.<Coordinate>emptyList() : calculateCurve(controlPoints, maxError));
+            breakpoints = built;
+        }
+        return built;
+    }
+
+    /**
+     * Returns the curve for the given control points, building it on first use. Curves are
+     * immutable and shared between every caller asking for the same control points.
+     */
+    public static Bezier of(double x1, double y1, double x2, double y2) {
+        return of(x1, y1, x2, y2, DEFAULT_MAX_ERROR);
+    }
+
+    /**
+     * Same as {@link #of(double, double, double, double)}, flattening the curve to the given
+     * maximum progression error.
+     */
+    public static Bezier of(double x1, double y1, double x2, double y2, double maxError) {
+        Key key = new Key(x1, y1, x2, y2, maxError);
+        synchronized (sharedCurves) {
+            Bezier curve = sharedCurves.get(key);
+            if (curve == null) {
+                curve = new Bezier(x1, y1, x2, y2, maxError);
+                sharedCurves.put(key, curve);
+            }
+            return curve;
         }
     }
 
     public double getProgression(double time) {
         if(time < 0 || time > 1) throw new AssertionError("Time must be between 0 and 1");
-        Coordinate c1 = null, c2 = null;
-        for (int i = 0; i < points.size()-1; i++) {
-            c1 = points.get(i);
-            c2 = points.get(i+1);
-            if(time >= c1.x && time <= c2.x) break;
+        Breakpoints curve = breakpoints();
+        double[] x = curve.times, y = curve.progressions;
+        // last breakpoint at or before time, the segment after it holds time
+        int low = 0, high = x.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (x[middle] <= time) low = middle;
+            else high = middle - 1;
+        }
+        if (low >= x.length - 1) return y[x.length - 1];
+        return y[low] + (y[low + 1] - y[low]) * (time - x[low]) / (x[low + 1] - x[low]);
+    }
+
+    /**
+     * Integer-only lookup for devices without a floating point unit.
+     * @param time time in 16.16 fixed point, between 0 and {@link #FIXED_ONE}
+     * @return progression in 16.16 fixed point
+     */
+    public int getFixedProgression(int time) {
+        if(time < 0 || time > FIXED_ONE) throw new AssertionError("Time must be between 0 and FIXED_ONE");
+        Breakpoints curve = breakpoints();
+        int[] x = curve.fixedTimes, y = curve.fixedProgressions;
+        int low = 0, high = x.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (x[middle] <= time) low = middle;
+            else high = middle - 1;
         }
-        return (c2.x * c1.y - c1.x * c1.y + c2.y * time - c2.y * c1.x - c1.y * time + c1.y * c1.x)/(c2.x - c1.x);
-     }
+        if (low >= x.length - 1) return y[x.length - 1];
+        return y[low] + (int) ((long) (y[low + 1] - y[low]) * (time - x[low]) / (x[low + 1] - x[low]));
+    }
+
+    public double sampleCurveX(double t) {
+        return ((ax * t + bx) * t + cx) * t;
+    }
+
+    public double sampleCurveY(double t) {
+        return ((ay * t + by) * t + cy) * t;
+    }
+
+    public double sampleCurveDerivativeX(double t) {
+        return (3 * ax * t + 2 * bx) * t + cx;
+    }
+
+    /**
+     * Finds the parameter t for which x(t) == x, using Newton-Raphson from the given guess and
+     * falling back to bisection when the derivative vanishes or the iterations do not converge.
+     * @param x time in [0, 1]
+     * @param guess starting t, typically the t solved on the previous frame
+     * @param epsilon accepted error on x
+     */
+    public double solveCurveX(double x, double guess, double epsilon) {
+        double t = guess;
+        for (int i = 0; i < NEWTON_ITERATIONS; i++) {
+            double error = sampleCurveX(t) - x;
+            if (Math.abs(error) < epsilon) return t;
+            double derivative = sampleCurveDerivativeX(t);
+            if (Math.abs(derivative) < 1e-6) break;
+            t -= error / derivative;
+            if (t < 0 || t > 1) break;
+        }
+        double low = 0, high = 1;
+        t = x;
+        while (low < high) {
+            double currentX = sampleCurveX(t);
+            if (Math.abs(currentX - x) < epsilon) return t;
+            if (x > currentX) low = t;
+            else high = t;
+            double next = (low + high) / 2;
+            if (next == t) break;
+            t = next;
+        }
+        return t;
+    }
+
+    /**
+     * Evaluates the curve analytically instead of interpolating its breakpoints
+     * @param time time in [0, 1]
+     * @param epsilon accepted error on x
+     */
+    public double getExactProgression(double time, double epsilon) {
+        if(time < 0 || time > 1) throw new AssertionError("Time must be between 0 and 1");
+        return sampleCurveY(solveCurveX(time, time, epsilon));
+    }
 
     private Coordinate getQuadraticTPoint(Coordinate src, Coordinate ctrl1,
                                           Coordinate dst, double perc) {
@@ -117,4 +304,104 @@ public class Bezier {
         l.add(new Coordinate(1,1));
         return l;
     }
-}
\ No newline at end of file
+
+    /**
+     * Flattens the quadratic (3 points) or cubic (4 points) curve by recursive subdivision,
+     * splitting a segment only while the curve strays from it by more than maxError.
+     * Flat regions get few points and sharp ones get many.
+     */
+    public List<Coordinate> calculateCurve(List<Coordinate> l, double maxError) {
+        if (l == null) {
+            throw new AssertionError("Provided list had no reference");
+        }
+        if (maxError <= 0) {
+            throw new AssertionError("Max error must be positive");
+        }
+        if (l.size() < 3) {
+            return null;
+        }
+        Coordinate p1 = l.get(0);
+        Coordinate p2 = l.get(1);
+        Coordinate p3 = l.get(2);
+        Coordinate p4 = l.size() == 4 ? l.get(3) : null;
+        Coordinate end = p4 == null ? p3 : p4;
+        List<Coordinate> curve = new ArrayList<Coordinate>();
+        curve.add(p1);
+        subdivide(curve, p1, p2, p3, p4, 0, p1, 1, end, maxError, 0);
+        return curve;
+    }
+
+    private void subdivide(List<Coordinate> curve, Coordinate p1, Coordinate p2, Coordinate p3, Coordinate p4,
+                           double t0, Coordinate c0, double t1, Coordinate c1, double maxError, int depth) {
+        double tm = (t0 + t1) / 2;
+        Coordinate cm = p4 == null ?
+                getQuadraticTPoint(p1, p2, p3, tm) :
+                getCubicTPoint(p1, p2, p3, p4, tm);
+        // progression error is measured along y, at the time of the curve midpoint
+        double dx = c1.x - c0.x;
+        double error = dx > 0 ?
+                Math.abs(cm.y - (c0.y + (c1.y - c0.y) * (cm.x - c0.x) / dx)) :
+                Math.abs(cm.y - (c0.y + c1.y) / 2);
+        if (depth >= MAX_SUBDIVISION_DEPTH || (depth >= MIN_SUBDIVISION_DEPTH && error <= maxError)) {
+            curve.add(c1);
+            return;
+        }
+        subdivide(curve, p1, p2, p3, p4, t0, c0, tm, cm, maxError, depth + 1);
+        subdivide(curve, p1, p2, p3, p4, tm, cm, t1, c1, maxError, depth + 1);
+    }
+
+    /** breakpoints of a flattened curve, in floating and 16.16 fixed point */
+    private static final class Breakpoints {
+        /** unmodifiable */
+        private final List<Coordinate> points;
+        private final double[] times, progressions;
+        private final int[] fixedTimes, fixedProgressions;
+
+        Breakpoints(List<Coordinate> curve) {
+            points = Collections.unmodifiableList(curve);
+            int size = curve.size();
+            times = new double[size];
+            progressions = new double[size];
+            fixedTimes = new int[size];
+            fixedProgressions = new int[size];
+            for (int i = 0; i < size; i++) {
+                Coordinate point = curve.get(i);
+                times[i] = point.x;
+                progressions[i] = point.y;
+                fixedTimes[i] = (int) Math.round(point.x * FIXED_ONE);
+                fixedProgressions[i] = (int) Math.round(point.y * FIXED_ONE);
+            }
+        }
+    }
+
+    private static final class Key {
+        private final double x1, y1, x2, y2, maxError;
+
+        Key(double x1, double y1, double x2, double y2, double maxError) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+            this.maxError = maxError;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return Double.compare(x1, k.x1) == 0 && Double.compare(y1, k.y1) == 0
+                    && Double.compare(x2, k.x2) == 0 && Double.compare(y2, k.y2) == 0
+                    && Double.compare(maxError, k.maxError) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = Double.doubleToLongBits(x1);
+            h = 31 * h + Double.doubleToLongBits(y1);
+            h = 31 * h + Double.doubleToLongBits(x2);
+            h = 31 * h + Double.doubleToLongBits(y2);
+            h = 31 * h + Double.doubleToLongBits(maxError);
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.totalcross.carousel;
 
-import totalcross.io.IOException;
+import totalcross.sys.Settings;
+import totalcross.sys.Vm;
 import totalcross.ui.ClippedContainer;
+import totalcross.ui.Container;
 import totalcross.ui.Control;
 import totalcross.ui.MainWindow;
 import totalcross.ui.Window;
@@ -10,14 +12,16 @@ import totalcross.ui.font.Font;
 import totalcross.ui.gfx.Color;
 import totalcross.ui.gfx.Graphics;
 import totalcross.ui.gfx.Rect;
-import totalcross.ui.icon.IconType;
-import totalcross.ui.icon.MaterialIcons;
 import totalcross.ui.image.Image;
 import totalcross.ui.image.ImageException;
 import totalcross.util.UnitsConverter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author italo
@@ -82,16 +86,124 @@ public class Carousel extends ClippedContainer{
     protected boolean auto = false;
     /** time to rotate */
     protected int timeToRotate = 5000;
-    /** time ellapsed since the last rotation */
-    protected int ellapsedTimeToRotate = 0;
-    /** rotate update listener */
-    protected UpdateListener rotateUpdate;
+    /** indicates auto rotation is waiting for the carousel to be shown again */
+    protected boolean rotationPaused = false;
+    /** deadline of the next auto rotation */
+    protected final CarouselScheduler.Timer rotateTimer = new CarouselScheduler.Timer() {
+        @Override
+        protected void run() {
+            if(!isShown()) {
+                // sleep until the next paint instead of polling
+                rotationPaused = true;
+                return;
+            }
+            if(isAnimating || tracking) armRotation();
+            else transitionAnimator.navigate(1);
+        }
+    };
     /** transition animator */
     private TransitionAnimator transitionAnimator = new TransitionAnimator(this);
-    /** list ordered by insertion time by default */
-    private ArrayList<Control> orderedChildren = new ArrayList<>();
+    /** pages ordered by insertion time by default, indexed by control */
+    private final PageModel pageModel = new PageModel();
+    /** depth of nested beginUpdate calls */
+    private int updateDepth;
+    /** indicates pages were inserted, removed or moved during the current update */
+    private boolean pagesChanged;
+    /** active page when the current update began */
+    private Control updateActivePage;
+    /** pages of the last submitted list and the items they show, by key */
+    private HashMap<Object, KeyedPage> keyedPages = new HashMap<Object, KeyedPage>();
+    /** updates posted from any thread, applied on the UI thread */
+    private final UpdateQueue updates = new UpdateQueue();
+    /** indicates the UI thread was asked to apply the posted updates */
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    /** time, in milliseconds, each tick may spend applying posted updates */
+    protected int updateBudget = 4;
+    /** applies the posted updates once per tick, in one page batch, until the queue is empty */
+    private final CarouselScheduler.Animation updateDrain = new CarouselScheduler.Animation() {
+        @Override
+        protected boolean step(int elapsed) {
+            drainUpdates(Vm.getTimeStamp() + updateBudget);
+            if(!updates.isEmpty()) return true;
+            drainRequested.set(false);
+            // an update posted while the flag was set did not ask for another drain
+            return !updates.isEmpty();
+        }
+    };
+    private final Runnable startDrain = () -> CarouselScheduler.getInstance().start(updateDrain);
     /** adapter */
     private Adapter adapter = new Adapter(this);
+    /** indicates if pages follow the finger when dragged */
+    protected boolean dragEnabled = true;
+    /** release velocity, in pixels per millisecond, above which a drag moves to the next page */
+    protected double flingVelocity = UnitsConverter.toPixels(DP + 300) / 1000.0;
+    /** indicates a pen is down and may start a drag */
+    boolean tracking;
+    /** indicates the pen moved past the touch tolerance and the pages follow it */
+    boolean dragging;
+    /** absolute x where the pen went down and latest absolute x received */
+    int dragStartX, dragX;
+    /** indicates dragX changed since the pages were last positioned */
+    boolean dragDirty;
+    /** neighbours of the active page shown while dragging */
+    Control dragPrevious, dragNext;
+    /** recent pen positions and their timestamps, used to estimate the release velocity */
+    private static final int DRAG_SAMPLES = 4;
+    private final int[] dragSampleX = new int[DRAG_SAMPLES], dragSampleTime = new int[DRAG_SAMPLES];
+    private int dragSampleCount;
+    /** positions the pages once per frame, however many drag events arrived since the last one */
+    private final CarouselScheduler.Animation dragFrame = new CarouselScheduler.Animation() {
+        @Override
+        protected boolean step(int elapsed) {
+            if(dragDirty) applyDrag();
+            return dragging;
+        }
+    };
+    /** pages placed by the last layoutAtPosition call, the first positionedCount are valid */
+    private Control[] positionedPages = new Control[2];
+    private int positionedCount;
+    /** pages placed by the current layoutAtPosition call, the first placedCount are valid */
+    private Control[] placedPages = new Control[2];
+    private int placedCount;
+    /** width of a page as a fraction of the carousel width */
+    protected double pageWidthFraction = 1;
+    /** space between pages, in pixels */
+    protected int pageSpacing;
+    /** item provider, null when pages are added as children */
+    private CarouselItemProvider itemProvider;
+    /** least number of pooled pages: the active page and the two neighbours on each side */
+    private static final int PAGE_POOL_SIZE = 5;
+    /** pooled page returned by the last getPage call */
+    private Control lastBoundPage;
+    /** pooled pages, an item is bound to the slot whose item is the farthest from the active one */
+    private Control[] pagePool;
+    /** item index bound to each slot of the pool, -1 when unbound */
+    private int[] boundIndexes;
+    /** number of pages ahead of the active one whose images are decoded before they are shown */
+    protected int prefetchDistance = 2;
+    /** indicates the last page is followed by the first one */
+    protected boolean loop;
+    /** time, in milliseconds, idle ticks may spend prewarming pages */
+    protected int prewarmBudget = 4;
+    /** pages prewarmed since they were added or last recycled */
+    private final HashSet<Control> prewarmedPages = new HashSet<Control>();
+    /** direction of the last navigation, the pages following it are prewarmed first */
+    private int lastDirection = TransitionAnimator.FORWARD;
+    /** prewarms the pages likely to be shown next on idle ticks, stopping once they all are */
+    private final CarouselScheduler.Animation prewarmTask = new CarouselScheduler.Animation() {
+        @Override
+        protected boolean step(int elapsed) {
+            // wait for the transition or the drag to end, their frames come first
+            if(isAnimating || tracking) return true;
+            return !prewarmNext(Vm.getTimeStamp() + prewarmBudget);
+        }
+    };
+    /** metrics listener, null when transitions are not measured */
+    private CarouselMetricsListener metricsListener;
+    /** metrics of the current transition, allocated with the first metrics listener */
+    private TransitionMetrics metrics;
+    /** the running transition is measured, a listener set meanwhile only measures the next one */
+    private boolean measuring;
 
     /**
      * Constructor
@@ -106,12 +218,7 @@ public class Carousel extends ClippedContainer{
      */
     @Override
     public void add(Control control) {
-        super.add(control);
-        orderedChildren.add(control);
-        if(getChildren().length == 1)
-            control.setRect(0, 0, PARENTSIZE, PARENTSIZE);
-        else
-            control.setRect(getWidth(), 0, PARENTSIZE, PARENTSIZE);
+        insertPages(getPageCount(), control);
     }
 
     /**
@@ -120,8 +227,12 @@ public class Carousel extends ClippedContainer{
      */
     @Override
     public void remove(Control control) {
-        super.remove(control);
-        orderedChildren.remove(control);
+        int index = pageIndexOf(control);
+        if(index < 0) {
+            super.remove(control);
+            return;
+        }
+        removePages(index, 1);
     }
 
     /**
@@ -130,8 +241,7 @@ public class Carousel extends ClippedContainer{
      * @param control
      */
     public void add(int index, Control control) {
-        super.remove(control);
-        orderedChildren.add(index, control);
+        insertPages(index, control);
     }
 
     /**
@@ -139,10 +249,493 @@ public class Carousel extends ClippedContainer{
      * @param controls
      */
     public void add(Control ... controls) {
-        for (Control c :
-                controls) {
-            this.add(c);
+        insertPages(getPageCount(), controls);
+    }
+
+    /**
+     * start a batch of page mutations: the pages are only laid out and repainted once, by the
+     * matching {@link #endUpdate()}. Batches can be nested.
+     */
+    public void beginUpdate() {
+        if(updateDepth++ == 0) {
+            updateActivePage = activeIndex < pageModel.size() ? pageModel.get(activeIndex) : null;
+            pagesChanged = false;
+        }
+    }
+
+    /**
+     * end a batch of page mutations, laying the pages out if the outermost batch changed them.
+     * The active page stays active if it was not removed.
+     */
+    public void endUpdate() {
+        if(updateDepth == 0) throw new AssertionError("endUpdate without beginUpdate");
+        if(--updateDepth > 0 || !pagesChanged) return;
+        pagesChanged = false;
+        Control previous = updateActivePage;
+        updateActivePage = null;
+        int count = pageModel.size();
+        int index = previous != null ? pageModel.indexOf(previous) : -1;
+        // a transition in flight keeps going to the same page at its new index, or around a ring
+        // of a new size
+        if(index >= 0 && isAnimating) transitionAnimator.onPagesShifted(index - activeIndex);
+        activeIndex = Math.max(0, Math.min(index >= 0 ? index : activeIndex, count - 1));
+        // the page it was moving to is gone, the page now at its index becomes active
+        if(index < 0 && previous != null && isAnimating) transitionAnimator.onTargetRemoved();
+        // a running rotation keeps its countdown, pages added one by one must not delay it
+        if(!auto || !rotateTimer.isScheduled() || count < 2) armRotation();
+        if(count == 0) {
+            requestPaint();
+            return;
+        }
+        Control page = pageModel.get(activeIndex);
+        if(page != previous) {
+            if(index >= 0) {
+                pageWillDisappear(previous);
+                setPageVisible(previous, false);
+            }
+            prewarm(page);
+            pageWillAppear(page);
+            if(!isMultiPage()) {
+                page.setRect(0, 0, PARENTSIZE, PARENTSIZE);
+                setPageVisible(page, true);
+            }
+            pageDidAppear(page);
+        }
+        // pages shifted under the viewport, laying them out paints them
+        boolean laidOut = isMultiPage() && !isAnimating && !dragging;
+        if(laidOut) layoutAtPosition(activeIndex);
+        schedulePrewarm();
+        if(!laidOut) requestPaint();
+    }
+
+    /**
+     * insert controls as pages. New pages are hidden and only laid out when they are about to be
+     * shown, so inserting many pages costs a single layout.
+     * @param index position of the first inserted page
+     * @param controls
+     */
+    public void insertPages(int index, Control ... controls) {
+        checkPageMutation();
+        if(index < 0 || index > pageModel.size()) throw new AssertionError("index out of bounds: " + index);
+        beginUpdate();
+        ArrayList<Control> added = new ArrayList<Control>(controls.length);
+        for (Control c : controls) {
+            int current = pageIndexOf(c);
+            if(current >= 0) {
+                // a page inserted again is moved instead of duplicated
+                pageModel.remove(current);
+                if(current < index) index--;
+            }
+            else {
+                super.add(c);
+                setPageVisible(c, false);
+            }
+            added.add(c);
+        }
+        pageModel.addAll(index, added);
+        pagesChanged = true;
+        endUpdate();
+    }
+
+    /**
+     * remove pages
+     * @param index position of the first removed page
+     * @param count number of pages removed
+     */
+    public void removePages(int index, int count) {
+        checkPageMutation();
+        if(index < 0 || count < 0 || index + count > pageModel.size())
+            throw new AssertionError("range out of bounds: " + index + ", " + count);
+        if(count == 0) return;
+        beginUpdate();
+        for (int i = index; i < index + count; i++) {
+            Control c = pageModel.get(i);
+            super.remove(c);
+            prewarmedPages.remove(c);
+        }
+        pageModel.removeRange(index, index + count);
+        pagesChanged = true;
+        endUpdate();
+    }
+
+    /**
+     * move a page
+     * @param from current position of the page
+     * @param to position of the page once moved
+     */
+    public void movePage(int from, int to) {
+        checkPageMutation();
+        int count = pageModel.size();
+        if(from < 0 || from >= count || to < 0 || to >= count)
+            throw new AssertionError("index out of bounds: " + from + ", " + to);
+        if(from == to) return;
+        beginUpdate();
+        pageModel.move(from, to);
+        pagesChanged = true;
+        endUpdate();
+    }
+
+    /**
+     * replace every page
+     * @param controls
+     */
+    public void setPages(Control ... controls) {
+        beginUpdate();
+        removePages(0, getPageCount());
+        insertPages(0, controls);
+        endUpdate();
+    }
+
+    /**
+     * show a new list of keyed items, applying only the difference with the current pages: pages
+     * whose key is gone are removed, new items get a page from the factory and pages of items
+     * that changed position are moved, the ones of a longest increasing subsequence staying in
+     * place. Kept items that are not equal to their previous version are bound again. Pages
+     * added by other means than this method are removed. The active page and a transition in
+     * flight are preserved if the active item is kept.
+     * @param items
+     * @param factory
+     * @param <T>
+     */
+    public <T> void submitList(List<T> items, CarouselPageFactory<T> factory) {
+        checkPageMutation();
+        int n = items.size();
+        int oldCount = pageModel.size();
+        HashMap<Object, KeyedPage> keyed = new HashMap<Object, KeyedPage>(n * 2);
+        Control[] target = new Control[n];
+        int[] oldPositions = new int[n];
+        for (int i = 0; i < n; i++) {
+            T item = items.get(i);
+            Object key = factory.getKey(item);
+            if(keyed.containsKey(key)) throw new AssertionError("duplicate key: " + key);
+            KeyedPage entry = keyedPages.get(key);
+            int position = entry != null ? pageModel.indexOf(entry.page) : -1;
+            if(position < 0) entry = new KeyedPage(factory.createPage(item), item);
+            else if(item == null ? entry.item != null : !item.equals(entry.item)) {
+                factory.bindPage(entry.page, item);
+                entry.item = item;
+            }
+            keyed.put(key, entry);
+            target[i] = entry.page;
+            oldPositions[i] = position;
+        }
+        keyedPages = keyed;
+        boolean[] stable = PageDiff.stablePages(oldPositions);
+        boolean[] kept = new boolean[oldCount], staying = new boolean[oldCount];
+        for (int i = 0; i < n; i++) {
+            if(oldPositions[i] < 0) continue;
+            kept[oldPositions[i]] = true;
+            staying[oldPositions[i]] = stable[i];
+        }
+        beginUpdate();
+        // take out removed and moved pages, from the end so positions stay valid
+        for (int j = oldCount - 1; j >= 0; j--) {
+            if(staying[j]) continue;
+            Control page = pageModel.remove(j);
+            if(!kept[j]) {
+                super.remove(page);
+                prewarmedPages.remove(page);
+            }
+            pagesChanged = true;
+        }
+        // the stable pages are in order, insert the new and moved ones around them
+        for (int i = 0; i < n; i++) {
+            if(stable[i]) continue;
+            Control page = target[i];
+            if(oldPositions[i] < 0) {
+                super.add(page);
+                setPageVisible(page, false);
+            }
+            pageModel.add(i, page);
+            pagesChanged = true;
+        }
+        endUpdate();
+    }
+
+    /**
+     * position of a page
+     * @param control
+     * @return -1 if the control is not a page of this carousel
+     */
+    public int indexOf(Control control) {
+        return itemProvider != null ? -1 : pageIndexOf(control);
+    }
+
+    /**
+     * position of a page, without indexing the pages for controls that are not children, so
+     * adding pages one by one within a batch stays linear
+     * @param control
+     * @return -1 if the control is not a page
+     */
+    private int pageIndexOf(Control control) {
+        return control.getParent() == this ? pageModel.indexOf(control) : -1;
+    }
+
+    /**
+     * post a change to apply on the UI thread. Safe to call from any thread, it never blocks: the
+     * update is pushed on a lock-free queue that the carousel drains on its ticks, in page batches
+     * limited by {@link #setUpdateBudget(int)}. Each update is applied as a whole, the pages are
+     * laid out and repainted once per batch.
+     * @param update
+     */
+    public void postUpdate(CarouselUpdate update) {
+        updates.offer(update);
+        if(drainRequested.compareAndSet(false, true)) MainWindow.getMainWindow().runOnMainThread(startDrain, false);
+    }
+
+    /**
+     * insert pages from any thread
+     * @param index position of the first inserted page, limited to the page count when applied
+     * @param controls
+     */
+    public void postInsertPages(final int index, Control ... controls) {
+        final Control[] inserted = controls.clone();
+        postUpdate(c -> c.insertPages(Math.min(index, c.getPageCount()), inserted));
+    }
+
+    /**
+     * remove pages from any thread, controls that are no longer pages when applied are ignored
+     * @param controls
+     */
+    public void postRemovePages(Control ... controls) {
+        final Control[] removed = controls.clone();
+        postUpdate(c -> {
+            c.beginUpdate();
+            for (Control control : removed) {
+                int index = c.indexOf(control);
+                if(index >= 0) c.removePages(index, 1);
+            }
+            c.endUpdate();
+        });
+    }
+
+    /**
+     * submit a list of keyed items from any thread, see {@link #submitList(List, CarouselPageFactory)}.
+     * The factory is called on the UI thread.
+     * @param items
+     * @param factory
+     * @param <T>
+     */
+    public <T> void postSubmitList(List<T> items, final CarouselPageFactory<T> factory) {
+        final ArrayList<T> copy = new ArrayList<T>(items);
+        postUpdate(c -> c.submitList(copy, factory));
+    }
+
+    /**
+     * set the time each tick may spend applying posted updates. At least one update is applied
+     * per tick, however long it takes.
+     * @param updateBudget in milliseconds
+     */
+    public void setUpdateBudget(int updateBudget) {
+        if(updateBudget < 0) throw new AssertionError("updateBudget must not be negative");
+        this.updateBudget = updateBudget;
+    }
+
+    public int getUpdateBudget() {
+        return updateBudget;
+    }
+
+    /**
+     * apply posted updates in a single page batch until the deadline
+     * @param deadline
+     */
+    private void drainUpdates(int deadline) {
+        beginUpdate();
+        int depth = updateDepth;
+        do {
+            CarouselUpdate update = updates.poll();
+            if(update == null) break;
+            try {
+                update.apply(this);
+            } catch (RuntimeException | AssertionError e) {
+                e.printStackTrace();
+                // close the batches the failed update left open
+                updateDepth = depth;
+            }
+        } while(Vm.getTimeStamp() < deadline);
+        endUpdate();
+    }
+
+    private void checkPageMutation() {
+        if(itemProvider != null) throw new AssertionError("pages are supplied by the item provider");
+    }
+
+    /**
+     * page of a submitted item
+     */
+    private static class KeyedPage {
+        final Control page;
+        Object item;
+
+        KeyedPage(Control page, Object item) {
+            this.page = page;
+            this.item = item;
+        }
+    }
+
+    /**
+     * set a provider to supply pages on demand instead of adding them as children. Pages previously
+     * added are removed and the carousel goes back to the first item.
+     * @param itemProvider
+     */
+    public void setItemProvider(CarouselItemProvider itemProvider) {
+        for (int i = 0; i < pageModel.size(); i++) {
+            super.remove(pageModel.get(i));
+        }
+        pageModel.clear();
+        if(pagePool != null) {
+            for (Control c : pagePool) {
+                super.remove(c);
+            }
+        }
+        this.itemProvider = itemProvider;
+        pagePool = null;
+        boundIndexes = null;
+        prewarmedPages.clear();
+        activeIndex = 0;
+        if(itemProvider == null) return;
+        pagePool = new Control[0];
+        boundIndexes = new int[0];
+        ensurePoolSize();
+        if(getPageCount() > 0) {
+            if(isMultiPage()) {
+                layoutAtPosition(0);
+                return;
+            }
+            Control page = getPage(0);
+            page.setRect(0, 0, PARENTSIZE, PARENTSIZE);
+            setPageVisible(page, true);
+        }
+    }
+
+    /**
+     * grow the pool to hold the pages visible at once, plus two on each side
+     */
+    private void ensurePoolSize() {
+        int size = Math.max(PAGE_POOL_SIZE, getMaxVisiblePages() + PAGE_POOL_SIZE - 1);
+        int current = pagePool.length;
+        if(size <= current) return;
+        pagePool = Arrays.copyOf(pagePool, size);
+        boundIndexes = Arrays.copyOf(boundIndexes, size);
+        for (int i = current; i < size; i++) {
+            pagePool[i] = itemProvider.createPage();
+            boundIndexes[i] = -1;
+            super.add(pagePool[i]);
+            pagePool[i].setRect(getWidth(), 0, PARENTSIZE, PARENTSIZE);
+            setPageVisible(pagePool[i], false);
+        }
+    }
+
+    /**
+     * get the item provider
+     * @return
+     */
+    public CarouselItemProvider getItemProvider() {
+        return itemProvider;
+    }
+
+    /**
+     * rebind the pooled pages after the items of the provider changed
+     */
+    public void notifyItemsChanged() {
+        if(itemProvider == null) return;
+        for (int i = 0; i < pagePool.length; i++) {
+            if(boundIndexes[i] != -1) pageRecycled(pagePool[i]);
+            boundIndexes[i] = -1;
+            pagePool[i].setRect(getWidth(), 0, PARENTSIZE, PARENTSIZE);
+            setPageVisible(pagePool[i], false);
+        }
+        int count = getPageCount();
+        if(activeIndex >= count) activeIndex = Math.max(0, count - 1);
+        if(count > 0) setActiveIndex(activeIndex);
+    }
+
+    /**
+     * number of pages, either added children or items of the provider
+     * @return
+     */
+    public int getPageCount() {
+        return itemProvider != null ? itemProvider.getItemCount() : pageModel.size();
+    }
+
+    /**
+     * control showing the page at index. With an item provider, a pooled page is bound to the
+     * item if it is not already.
+     * @param index
+     * @return
+     */
+    public Control getPage(int index) {
+        if(itemProvider == null) return pageModel.get(index);
+        int slot = slotOf(index);
+        if(boundIndexes[slot] != index) {
+            if(boundIndexes[slot] != -1) pageRecycled(pagePool[slot]);
+            itemProvider.bindPage(pagePool[slot], index);
+            boundIndexes[slot] = index;
+        }
+        lastBoundPage = pagePool[slot];
+        return pagePool[slot];
+    }
+
+    /**
+     * set if the last page is followed by the first one. Page indexes are then taken modulo the
+     * page count, wrapping around needs neither duplicated pages nor reordered children.
+     * @param loop
+     */
+    public void setLoop(boolean loop) {
+        this.loop = loop;
+        // positions gone around the ring are brought back to the pages
+        if(isAnimating) transitionAnimator.onLoopChanged();
+        armRotation();
+    }
+
+    public boolean isLoop() {
+        return loop;
+    }
+
+    /**
+     * page index at an offset from the pages, wrapped around in loop mode
+     * @param index
+     * @return -1 if there is no such page
+     */
+    public int ringIndex(int index) {
+        int count = getPageCount();
+        if(loop && count > 0) return ((index % count) + count) % count;
+        return index >= 0 && index < count ? index : -1;
+    }
+
+    /**
+     * number of pages between two indexes, the shorter way around in loop mode
+     * @param from
+     * @param to
+     * @return
+     */
+    protected int ringDistance(int from, int to) {
+        int distance = Math.abs(to - from);
+        int count = getPageCount();
+        return loop && count > 0 ? Math.min(distance % count, count - distance % count) : distance;
+    }
+
+    /**
+     * slot of the pool an item is bound to, or will be bound to: an unbound slot, else the one
+     * whose item is the farthest from the active page. Pages on screen and the page returned last
+     * are never taken, so the pages of a transition can be fetched one after the other.
+     * @param index
+     * @return
+     */
+    private int slotOf(int index) {
+        int slot = -1;
+        int farthest = -1;
+        for (int i = 0; i < pagePool.length; i++) {
+            int bound = boundIndexes[i];
+            if(bound == index) return i;
+            if(pagePool[i] == lastBoundPage || bound != -1 && isMoving(pagePool[i])) continue;
+            int distance = bound == -1 ? Integer.MAX_VALUE : ringDistance(bound, activeIndex);
+            if(distance > farthest) {
+                farthest = distance;
+                slot = i;
+            }
         }
+        return slot != -1 ? slot : (pagePool[0] == lastBoundPage ? 1 : 0);
     }
 
     /**
@@ -249,50 +842,108 @@ public class Carousel extends ClippedContainer{
         this.adapter = adapter;
     }
 
+    /**
+     * set a listener to receive frame-time metrics of every transition, or null to stop measuring.
+     * A listener set while a transition runs is notified from the next one.
+     * @param metricsListener
+     */
+    public void setMetricsListener(CarouselMetricsListener metricsListener) {
+        if(metricsListener != null && metrics == null) metrics = new TransitionMetrics();
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * start measuring a transition if a metrics listener is set
+     * @param direction
+     */
+    private void startMeasure(int direction) {
+        measuring = metricsListener != null;
+        if(!measuring) return;
+        metrics.start(direction);
+        metricsListener.onTransitionStart(this, direction);
+    }
+
+    /**
+     * report the measured transition to the metrics listener, if it was not removed meanwhile
+     */
+    private void endMeasure() {
+        measuring = false;
+        if(metricsListener != null) metricsListener.onTransitionEnd(this, metrics);
+    }
+
+    /**
+     * get the metrics listener
+     * @return
+     */
+    public CarouselMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * metrics of the last measured transition, also holding the frame histogram. Null until a
+     * metrics listener is set.
+     * @return
+     */
+    public TransitionMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * set auto rotation (auto rotation means automatically pass to the next child)
      * @param auto
      */
     public void setAuto(boolean auto) {
 
-        if(auto == true && this.auto == false) {
-            ellapsedTimeToRotate = 0;
-            MainWindow.getMainWindow().addUpdateListener(rotateUpdate = (time) -> {
-                if(activeIndex == orderedChildren.size()-1) return;
-                ellapsedTimeToRotate += time;
-                if(ellapsedTimeToRotate >= timeToRotate) {
-                    PenEvent p = new PenEvent();
-                    p.x = getWidth();
-                    p.type = EventType.PEN_UP;
-                    postEvent(p);
-                }
-
-            });
-        }
+        boolean wasAuto = this.auto;
+        this.auto = auto;
+        rotationPaused = false;
+        if(auto != wasAuto) armRotation();
+    }
 
-        if(auto == false && rotateUpdate != null)
-            MainWindow.getMainWindow().removeUpdateListener(rotateUpdate);
+    /**
+     * restart the countdown to the next auto rotation. Nothing is armed while auto rotation is off
+     * or paused, or on the last page.
+     */
+    protected void armRotation() {
+        if(auto && !rotationPaused && (loop ? getPageCount() > 1 : activeIndex < getPageCount() - 1))
+            CarouselScheduler.getInstance().schedule(rotateTimer, timeToRotate);
+        else
+            CarouselScheduler.getInstance().cancel(rotateTimer);
+    }
 
-        this.auto = auto;
+    /**
+     * indicates if this carousel and all its parents are visible, in the window on top, and if
+     * part of it lies within the bounds of every parent, so it is not scrolled out of view
+     * @return
+     */
+    protected boolean isShown() {
+        // visible area, in the coordinates of the parent of c
+        int x1 = 0, y1 = 0, x2 = width, y2 = height;
+        for (Control c = this; c != null; c = c.getParent()) {
+            if(!c.isVisible()) return false;
+            Container parent = c.getParent();
+            if(parent == null) break;
+            x1 = Math.max(x1 + c.getX(), 0);
+            y1 = Math.max(y1 + c.getY(), 0);
+            x2 = Math.min(x2 + c.getX(), parent.getWidth());
+            y2 = Math.min(y2 + c.getY(), parent.getHeight());
+            if(x1 >= x2 || y1 >= y2) return false;
+        }
+        return getParentWindow() == Window.getTopMost();
     }
 
     /**
-     * set element at index
+     * set element at index: a control that is not a page yet is inserted there, a page is moved
+     * there
      * @param index
      * @param control
      */
     public void setElement(int index, Control control) {
-        boolean isAlreadyChild = false;
-        for (int i = 0; i < getChildren().length; i++) {
-            if(getChildren()[i].equals(control)) {
-                isAlreadyChild = true;
-                break;
-            }
-        }
-        if(!isAlreadyChild)
-            this.add(index, control);
+        int current = pageIndexOf(control);
+        if(current < 0)
+            insertPages(index, control);
         else
-            orderedChildren.set(index, control);
+            movePage(current, index);
     }
 
     /**
@@ -300,9 +951,238 @@ public class Carousel extends ClippedContainer{
      * @param activeIndex
      */
     public void setActiveIndex(int activeIndex) {
-        orderedChildren.get(activeIndex).setRect(0, 0, getWidth(), getHeight());
+        boolean multiPage = isMultiPage();
+        if(activeIndex != this.activeIndex && this.activeIndex < getPageCount()) {
+            Control previous = getPage(this.activeIndex);
+            pageWillDisappear(previous);
+            if(!multiPage) {
+                previous.setRect(getWidth(), 0, getWidth(), getHeight());
+                setPageVisible(previous, false);
+            }
+        }
+        Control page = getPage(activeIndex);
+        // a page bound again to its item appears as well
+        boolean appearing = activeIndex != this.activeIndex || !prewarmedPages.contains(page);
+        prewarm(page);
+        if(appearing) pageWillAppear(page);
         this.activeIndex = activeIndex;
-        Window.needsPaint = true;
+        if(multiPage) layoutAtPosition(activeIndex);
+        else {
+            page.setRect(0, 0, getWidth(), getHeight());
+            setPageVisible(page, true);
+        }
+        if(appearing) pageDidAppear(page);
+        armRotation();
+        prefetch(TransitionAnimator.FORWARD);
+        schedulePrewarm();
+        // the multi-page layout has already painted
+        if(!multiPage) requestPaint();
+    }
+
+    /**
+     * set active index, optionally animating to it. The animated jump only moves the current
+     * and the destination pages, whatever the distance between them.
+     * @param activeIndex
+     * @param animate
+     */
+    public void setActiveIndex(int activeIndex, boolean animate) {
+        if(animate && isShown()) transitionAnimator.jumpTo(activeIndex);
+        else setActiveIndex(activeIndex);
+    }
+
+    /**
+     * set the size of the pages relative to the viewport. With pages narrower than the carousel
+     * the active page is centered and its neighbours peek on both sides, e.g. 0.8 shows a tenth
+     * of each neighbour, 1/3 shows three cards. Pages then always move by scrolling, transitions
+     * only setting the scroll position.
+     * @param pageWidthFraction width of a page as a fraction of the carousel width, in (0, 1]
+     * @param pageSpacing space between pages, in pixels
+     */
+    public void setPageLayout(double pageWidthFraction, int pageSpacing) {
+        if(pageWidthFraction <= 0 || pageWidthFraction > 1)
+            throw new AssertionError("pageWidthFraction must be in (0, 1]");
+        if(pageSpacing < 0) throw new AssertionError("pageSpacing must not be negative");
+        this.pageWidthFraction = pageWidthFraction;
+        this.pageSpacing = pageSpacing;
+        if(itemProvider != null) ensurePoolSize();
+        // pages laid out by the previous layout are placed again from scratch
+        for (int i = 0; i < positionedCount; i++) {
+            setPageVisible(positionedPages[i], false);
+            positionedPages[i] = null;
+        }
+        positionedCount = 0;
+        if(getPageCount() > 0 && !isAnimating) setActiveIndex(activeIndex);
+    }
+
+    public double getPageWidthFraction() {
+        return pageWidthFraction;
+    }
+
+    public int getPageSpacing() {
+        return pageSpacing;
+    }
+
+    /**
+     * whether several pages share the viewport, or each page fills it
+     * @return
+     */
+    public boolean isMultiPage() {
+        return pageWidthFraction < 1 || pageSpacing != 0;
+    }
+
+    /**
+     * width of a page, in pixels
+     * @return
+     */
+    public int getPageWidth() {
+        return Math.max(1, (int) Math.round(getWidth() * pageWidthFraction));
+    }
+
+    /**
+     * distance between the left edges of two consecutive pages, in pixels
+     * @return
+     */
+    public int getPageStride() {
+        return getPageWidth() + pageSpacing;
+    }
+
+    /**
+     * most pages intersecting the viewport at once
+     * @return
+     */
+    protected int getMaxVisiblePages() {
+        int width = getWidth();
+        return width <= 0 ? 1 : (width + getPageStride() - 1) / getPageStride() + 1;
+    }
+
+    @Override
+    protected void onBoundsChanged(boolean screenChanged) {
+        super.onBoundsChanged(screenChanged);
+        if(itemProvider != null) ensurePoolSize();
+        if(isMultiPage() && !isAnimating && !dragging && getPageCount() > 0) layoutAtPosition(activeIndex);
+    }
+
+    /**
+     * lay out the pages for a fractional scroll position, in pages. In closed form, the page at
+     * index i is placed at (width - pageWidth) / 2 + (i - position) * stride: only the pages in the
+     * range intersecting the viewport are fetched and positioned, those positioned by the previous
+     * call and no longer visible are parked.
+     * @param position
+     */
+    protected void layoutAtPosition(double position) {
+        layoutAtFixedPosition(Math.round(position * Bezier.FIXED_ONE));
+    }
+
+    /**
+     * same as {@link #layoutAtPosition(double)} in integer math, for transitions eased in
+     * {@link TransitionAnimator#EASING_FIXED} mode
+     * @param position in pages, in 16.16 fixed point
+     */
+    protected void layoutAtFixedPosition(long position) {
+        int width = getWidth();
+        int pageWidth = getPageWidth();
+        int stride = getPageStride();
+        int base = (width - pageWidth) / 2;
+        long fixedStride = (long) stride << 16;
+        // i is visible when base + (i - position) * stride is in (-pageWidth, width)
+        int first = (int) floorDiv(position * stride - ((long) (base + pageWidth) << 16), fixedStride) + 1;
+        int last = (int) -floorDiv(-(position * stride + ((long) (width - base) << 16)), fixedStride) - 1;
+        placedCount = 0;
+        // nearest first, so a ring shorter than the viewport shows each page where it is closest
+        int center = (int) Math.max(first, Math.min(last, (position + (1 << 15)) >> 16));
+        for (int d = 0; center + d <= last || center - d >= first; d++) {
+            if(center + d <= last) placePage(center + d, position, base, stride, pageWidth);
+            if(d > 0 && center - d >= first) placePage(center - d, position, base, stride, pageWidth);
+        }
+        for (int i = 0; i < positionedCount; i++) {
+            Control c = positionedPages[i];
+            if(!contains(placedPages, placedCount, c)) {
+                c.setRect(width, c.getY(), pageWidth, c.getHeight());
+                setPageVisible(c, false);
+            }
+        }
+        Control[] swap = positionedPages;
+        positionedPages = placedPages;
+        placedPages = swap;
+        Arrays.fill(placedPages, 0, positionedCount, null);
+        positionedCount = placedCount;
+        placedCount = 0;
+        requestPaint();
+    }
+
+    /**
+     * place the page at an index of the ring, unless it was already placed
+     * @param i
+     * @param position in pages, in 16.16 fixed point
+     * @param base x of the page at position
+     * @param stride
+     * @param pageWidth
+     */
+    private void placePage(int i, long position, int base, int stride, int pageWidth) {
+        int index = ringIndex(i);
+        if(index < 0) return;
+        Control page = getPage(index);
+        // a ring shorter than the viewport shows each page once
+        if(contains(placedPages, placedCount, page)) return;
+        if(placedCount == placedPages.length) placedPages = grow(placedPages);
+        placedPages[placedCount++] = page;
+        prewarm(page);
+        int x = base + (int) (((((long) i << 16) - position) * stride + (1 << 15)) >> 16);
+        page.setRect(x, page.getY(), pageWidth, page.getHeight());
+        cull(page);
+    }
+
+    /**
+     * quotient rounded down
+     * @param dividend
+     * @param divisor positive
+     * @return
+     */
+    private static long floorDiv(long dividend, long divisor) {
+        return dividend >= 0 ? dividend / divisor : -((divisor - 1 - dividend) / divisor);
+    }
+
+    private static boolean contains(Control[] pages, int count, Control page) {
+        for (int i = 0; i < count; i++) {
+            if(pages[i] == page) return true;
+        }
+        return false;
+    }
+
+    private static Control[] grow(Control[] pages) {
+        Control[] grown = new Control[pages.length * 2];
+        System.arraycopy(pages, 0, grown, 0, pages.length);
+        return grown;
+    }
+
+    /**
+     * repaint only the bounds of this carousel, unless a full window repaint is already pending
+     */
+    protected void requestPaint() {
+        if(Window.needsPaint || getParentWindow() != Window.getTopMost()) return;
+        repaintNow();
+    }
+
+    /**
+     * show or hide a page so pages parked outside the viewport are not painted. Hiding a page
+     * must not trigger a full window repaint, the carousel repaints its own bounds.
+     * @param page
+     * @param visible
+     */
+    protected void setPageVisible(Control page, boolean visible) {
+        if(page.isVisible() == visible) return;
+        boolean pending = Window.needsPaint;
+        page.setVisible(visible);
+        Window.needsPaint = pending;
+    }
+
+    /**
+     * show a page only if it intersects the viewport
+     * @param page
+     */
+    protected void cull(Control page) {
+        int x = page.getX();
+        setPageVisible(page, x < getWidth() && x + page.getWidth() > 0);
     }
 
     /**
@@ -329,6 +1209,14 @@ public class Carousel extends ClippedContainer{
         adapter.setIndicatorColor(color);
     }
 
+    /**
+     * set the maximum number of indicators shown at once, 0 shows one indicator per page
+     * @param maxIndicators
+     */
+    public void setMaxIndicators(int maxIndicators) {
+        adapter.setMaxIndicators(maxIndicators);
+    }
+
     /**
      * time spent to animate between transitions in milliseconds
      * @param time
@@ -337,6 +1225,25 @@ public class Carousel extends ClippedContainer{
         transitionAnimator.setAnimationTime(time);
     }
 
+    /**
+     * set how the transition curve is evaluated, {@link TransitionAnimator#EASING_SAMPLED},
+     * {@link TransitionAnimator#EASING_EXACT} or {@link TransitionAnimator#EASING_FIXED}
+     * @param easingMode
+     */
+    public void setEasingMode(int easingMode) {
+        transitionAnimator.setEasingMode(easingMode);
+    }
+
+    /**
+     * set if transitions move screenshots of the pages instead of the live pages. Ignored while
+     * the pages are narrower than the carousel (see {@link #setPageLayout(double, int)}), which
+     * scrolls every page in view and keeps moving the live ones.
+     * @param snapshotEnabled
+     */
+    public void setSnapshotTransitions(boolean snapshotEnabled) {
+        transitionAnimator.setSnapshotEnabled(snapshotEnabled);
+    }
+
     /**
      * A class that holder bezier parameters and has some known transitions by default
      * @author italo
@@ -381,14 +1288,69 @@ public class Carousel extends ClippedContainer{
         Carousel carousel;
         Control inCommingChild = null, outCommingChild = null, inCommingChild2 = null;
         TransitionType transitionType = TransitionType.easeInOutBack;
-        Bezier bezier = new Bezier(transitionType.x1, transitionType.y1, transitionType.x2, transitionType.y2);
+        /** shared curve of transitionType, resolved on first use */
+        Bezier bezier;
         int direction = 0;
+        /** time into the transition, on the scheduler clock */
         int elapssedTime;
+        /** scheduler time at which the transition started */
+        int startTime;
         /** Constant that indicates FORWARD ANIMATION */
         public static final int FORWARD = 1;
         /** BACKWORDS animation */
         public static final int BACKWARD = 2;
+        /** Easing interpolated between the breakpoints of the flattened curve */
+        public static final int EASING_SAMPLED = 0;
+        /** Easing solved analytically from the curve control points */
+        public static final int EASING_EXACT = 1;
+        /** Easing interpolated between the 16.16 fixed-point breakpoints of the curve, offsets computed in integer math */
+        public static final int EASING_FIXED = 2;
         protected int animationTime = 500;
+        /** frames of the transition, driven by the shared scheduler */
+        private final CarouselScheduler.Animation animation = new CarouselScheduler.Animation() {
+            @Override
+            protected boolean step(int i) {
+                // the curve is evaluated at the time really elapsed, so the last frame lands on time
+                elapssedTime = Math.max(0, CarouselScheduler.getInstance().getFrameTime() - startTime);
+                if(elapssedTime >= animationTime) {
+                    if(snapshotting) releaseSnapshots();
+                    measuredStep(animationTime, i);
+                    isAnimating = false;
+                    if(toFraction != 0) pageDidAppear(inCommingChild);
+                    if(measuring) endMeasure();
+                    if(pendingSteps != 0) {
+                        int steps = pendingSteps;
+                        pendingSteps = 0;
+                        navigate(steps);
+                        // the net navigation queued meanwhile started the next transition
+                        if(isAnimating) return true;
+                    }
+                    armRotation();
+                    schedulePrewarm();
+                    return false;
+                }
+                measuredStep(elapssedTime, i);
+                return true;
+            }
+        };
+        protected int easingMode = EASING_SAMPLED;
+        /** accepted error on time when solving the curve in {@link #EASING_EXACT} mode */
+        protected double epsilon = Bezier.DEFAULT_EPSILON;
+        /** curve parameter solved on the previous frame, used to warm-start the solver */
+        double lastT;
+        /** pages navigated while a transition was running, applied as one jump when it ends */
+        int pendingSteps;
+        /** with several pages per viewport, scroll position the transition starts from and the
+         * number of pages it scrolls by */
+        int scrollOrigin, scrollSteps;
+        /** fraction of the travel, in 16.16 fixed point, where the transition starts and ends */
+        int fromFraction = 0, toFraction = Bezier.FIXED_ONE;
+        /** animate screenshots of the moving children instead of laying them out every frame */
+        protected boolean snapshotEnabled = false;
+        /** indicates the current transition is drawn from screenshots */
+        boolean snapshotting = false;
+        /** x positions of the screenshots for the current frame */
+        int inCommingSnapshotX, inComming2SnapshotX, outCommingSnapshotX;
 
         /**
          * Constructor
@@ -406,13 +1368,40 @@ public class Carousel extends ClippedContainer{
             this.animationTime = animationTime;
         }
 
+        /**
+         * set easing mode
+         * @param easingMode
+         */
+        public void setEasingMode(int easingMode) {
+            this.easingMode = easingMode;
+        }
+
+        /**
+         * set if transitions render the moving children to images once and only move those images
+         * while animating. Heavy pages animate at the cost of a few drawImage calls, but their
+         * content is frozen until the transition ends. Multi-page layouts always move the live
+         * pages.
+         * @param snapshotEnabled
+         */
+        public void setSnapshotEnabled(boolean snapshotEnabled) {
+            this.snapshotEnabled = snapshotEnabled;
+        }
+
+        /**
+         * set the accepted error used by {@link #EASING_EXACT} mode
+         * @param epsilon
+         */
+        public void setEpsilon(double epsilon) {
+            this.epsilon = epsilon;
+        }
+
         /**
          * set animation type
          * @param transitionType
          */
         public void setAnimationType(TransitionType transitionType) {
             this.transitionType = transitionType;
-            bezier = new Bezier(transitionType.x1, transitionType.y1, transitionType.x2, transitionType.y2);
+            bezier = null;
         }
 
         /**
@@ -420,58 +1409,253 @@ public class Carousel extends ClippedContainer{
          * @param direction
          */
         public void begin(int direction) {
-            if(carousel.getChildren().length < 2 || isAnimating) return;
-            isAnimating = true;
+            begin(direction, 0, true);
+        }
+
+        /**
+         * begin an animation from a partially travelled position, as left by a drag
+         * @param direction
+         * @param from pixels already travelled by the incoming child
+         * @param advance move to the incoming child, or go back to the current one
+         */
+        public void begin(int direction, int from, boolean advance) {
+            if(carousel.getPageCount() < 2 || isAnimating) return;
+            if(carousel.getWidth() <= 0) return;
+            int stride = carousel.getPageStride();
             this.direction = direction;
+            int previousIndex = activeIndex;
             setMovingChildren();
-            elapssedTime = 0;
-            final UpdateListener [] updateListener = new UpdateListener[1];
+            if(inCommingChild == null) {
+                this.direction = 0;
+                return;
+            }
+            if(!advance) activeIndex = previousIndex;
+            scrollOrigin = previousIndex;
+            scrollSteps = direction == FORWARD ? 1 : -1;
+            start(direction, (int) (((long) Math.min(Math.max(from, 0), stride) << 16) / stride),
+                    advance ? Bezier.FIXED_ONE : 0);
+        }
 
-            updateListener[0] = new UpdateListener() {
+        /**
+         * called when pages were inserted, removed or moved during a transition, the active page
+         * being now at its index plus shift, possibly 0
+         * @param shift
+         */
+        protected void onPagesShifted(int shift) {
+            int destination = scrollOrigin + scrollSteps;
+            scrollOrigin += unwrap(activeIndex + shift, destination + shift) - destination;
+        }
 
-                public void updateListenerTriggered(int i) {
-                    elapssedTime += i;
-                    if(animationTime < elapssedTime) {
-                        MainWindow.getMainWindow().removeUpdateListener(updateListener[0]);
-                        singleStep(animationTime);
-                        isAnimating = false;
-                        return;
-                    }
-                    singleStep(elapssedTime);
+        /**
+         * called when loop mode changes during a transition, to bring the positions it went to
+         * around the ring back in the range of the pages
+         */
+        protected void onLoopChanged() {
+            onPagesShifted(0);
+        }
+
+        /**
+         * in loop mode, the position of a page nearest to a position gone around the ring
+         * @param index
+         * @param near
+         * @return index itself if not in loop mode
+         */
+        protected int unwrap(int index, int near) {
+            int count = carousel.getPageCount();
+            if(!loop || count == 0) return index;
+            return index + count * (int) floorDiv(near - index + count / 2, count);
+        }
+
+        /**
+         * called when the page a running transition moves to was removed, activeIndex being
+         * already set to a remaining page. The transition stops and the carousel settles on it.
+         */
+        protected void onTargetRemoved() {
+            CarouselScheduler.getInstance().stop(animation);
+            if(snapshotting) releaseSnapshots();
+            isAnimating = false;
+            pendingSteps = 0;
+            direction = 0;
+            if(measuring) endMeasure();
+            Control active = carousel.getPageCount() > 0 ? carousel.getPage(activeIndex) : null;
+            for (Control c : new Control[] {outCommingChild, inCommingChild, inCommingChild2}) {
+                if(c != null && c != active && pageIndexOf(c) >= 0) {
+                    c.setRect(carousel.getWidth(), c.getY(), c.getWidth(), c.getHeight());
+                    setPageVisible(c, false);
                 }
-            };
-            MainWindow.getMainWindow().addUpdateListener(updateListener[0]);
+            }
+            inCommingChild = outCommingChild = inCommingChild2 = null;
+        }
+
+        /**
+         * move by a number of pages. Navigation requested while a transition runs is accumulated
+         * and applied as a single jump when it ends.
+         * @param steps positive to move forward, negative to move backward
+         */
+        public void navigate(int steps) {
+            if(steps == 0) return;
+            if(isAnimating) {
+                pendingSteps += steps;
+                return;
+            }
+            if(steps == 1) begin(FORWARD);
+            else if(steps == -1) begin(BACKWARD);
+            else jump(activeIndex + steps, steps > 0 ? FORWARD : BACKWARD);
+        }
+
+        /**
+         * animate to any page, moving only the current and the destination pages. Jumping many
+         * pages costs the same as a single step. In loop mode it goes the shorter way around.
+         * @param index
+         */
+        public void jumpTo(int index) {
+            int count = carousel.getPageCount();
+            if(count < 2) return;
+            int steps;
+            if(loop) {
+                steps = carousel.ringIndex(index - activeIndex);
+                if(steps > count / 2) steps -= count;
+            }
+            else steps = Math.max(0, Math.min(index, count - 1)) - activeIndex;
+            if(isAnimating) pendingSteps = steps;
+            else if(steps != 0) jump(activeIndex + steps, steps > 0 ? FORWARD : BACKWARD);
+        }
+
+        /**
+         * animate to a page in a direction
+         * @param index wrapped around in loop mode, clamped otherwise
+         * @param direction
+         */
+        private void jump(int index, int direction) {
+            int count = carousel.getPageCount();
+            if(count < 2 || carousel.getWidth() <= 0) return;
+            index = loop ? carousel.ringIndex(index) : Math.max(0, Math.min(index, count - 1));
+            if(index == activeIndex) return;
+            this.direction = direction;
+            outCommingChild = carousel.getPage(activeIndex);
+            inCommingChild = carousel.getPage(index);
+            inCommingChild2 = null;
+            scrollOrigin = activeIndex;
+            int steps = index - activeIndex;
+            // in loop mode the destination may be reached around the ring
+            if(direction == FORWARD && steps < 0) steps += count;
+            if(direction == BACKWARD && steps > 0) steps -= count;
+            scrollSteps = steps;
+            activeIndex = index;
+            start(direction, 0, Bezier.FIXED_ONE);
+        }
+
+        /**
+         * start animating the moving children
+         * @param direction
+         * @param from fraction of the travel, in 16.16 fixed point, where the transition starts
+         * @param to fraction of the travel where it ends
+         */
+        private void start(int direction, int from, int to) {
+            isAnimating = true;
+            carousel.prefetch(direction);
+            if(to != 0) {
+                prewarm(inCommingChild);
+                prewarm(inCommingChild2);
+                pageWillDisappear(outCommingChild);
+                pageWillAppear(inCommingChild);
+            }
+            fromFraction = from;
+            toFraction = to;
+            elapssedTime = 0;
+            startTime = CarouselScheduler.getInstance().getTime();
+            lastT = 0;
+            if(snapshotEnabled && !carousel.isMultiPage()) takeSnapshots();
+            startMeasure(direction);
+            CarouselScheduler.getInstance().start(animation);
+        }
+
+        /**
+         * render the moving children to their offscreen images
+         */
+        protected void takeSnapshots() {
+            if(inCommingChild == null) return;
+            setPageVisible(inCommingChild, true);
+            if(inCommingChild2 != null) setPageVisible(inCommingChild2, true);
+            outCommingChild.takeScreenShot();
+            inCommingChild.takeScreenShot();
+            if(inCommingChild2 != null) inCommingChild2.takeScreenShot();
+            snapshotting = outCommingChild.offscreen != null && inCommingChild.offscreen != null
+                    && (inCommingChild2 == null || inCommingChild2.offscreen != null);
+            if(!snapshotting) releaseSnapshots();
+        }
+
+        /**
+         * drop the offscreen images and go back to painting the live children
+         */
+        protected void releaseSnapshots() {
+            snapshotting = false;
+            outCommingChild.releaseScreenShot();
+            if(inCommingChild != null) inCommingChild.releaseScreenShot();
+            if(inCommingChild2 != null) inCommingChild2.releaseScreenShot();
+        }
+
+        /**
+         * draw the screenshots of the moving children at their current positions
+         * @param g
+         */
+        protected void paintSnapshots(Graphics g) {
+            g.drawImage(outCommingChild.offscreen, outCommingSnapshotX, outCommingChild.getY());
+            g.drawImage(inCommingChild.offscreen, inCommingSnapshotX, inCommingChild.getY());
+            if(inCommingChild2 != null)
+                g.drawImage(inCommingChild2.offscreen, inComming2SnapshotX, inCommingChild2.getY());
+        }
+
+        /**
+         * runs singleStep, recording the frame when a metrics listener is registered
+         * @param time
+         * @param interval time since the previous frame
+         */
+        private void measuredStep(int time, int interval) {
+            if(!measuring) {
+                singleStep(time);
+                return;
+            }
+            int start = Vm.getTimeStamp();
+            singleStep(time);
+            metrics.stepTime += Vm.getTimeStamp() - start;
+            metrics.frame(interval);
         }
 
         /**
          * set children to be animated
          */
         public void setMovingChildren() {
-            List<Control> children = carousel.orderedChildren;
-            outCommingChild = children.get(activeIndex);
+            int count = carousel.getPageCount();
+            outCommingChild = carousel.getPage(activeIndex);
             inCommingChild = null;
             inCommingChild2 = null; // In case of using easeInOutBack animation the next quickly come in and out.
-            if(direction == FORWARD && children.size() > activeIndex + 1) {
-                inCommingChild = children.get(activeIndex + 1);
+            // neighbours are resolved on the ring of pages in loop mode, -1 past the ends otherwise
+            int next = direction == FORWARD ? carousel.ringIndex(activeIndex + 1) : -1;
+            if(next >= 0 && next != activeIndex) {
+                inCommingChild = carousel.getPage(next);
                 Rect rect = inCommingChild.getRect();
                 rect.x = - rect.width;
-                if(children.size() > activeIndex + 2) {
-                    inCommingChild2 = children.get(activeIndex + 2);
+                int next2 = carousel.ringIndex(activeIndex + 2);
+                if(next2 >= 0 && count > 2) {
+                    inCommingChild2 = carousel.getPage(next2);
                     rect = inCommingChild2.getRect();
                     rect.x =  -inCommingChild.getRect().x - rect.width;
                 }
-                activeIndex++;
+                activeIndex = next;
             }
-            if(direction == BACKWARD && 0 <= activeIndex - 1) {
-                inCommingChild = children.get(activeIndex - 1);
+            int previous = direction == BACKWARD ? carousel.ringIndex(activeIndex - 1) : -1;
+            if(previous >= 0 && previous != activeIndex) {
+                inCommingChild = carousel.getPage(previous);
                 Rect rect = inCommingChild.getRect();
                 rect.x = rect.width + carousel.getWidth();
-                if(0 <= activeIndex - 2) {
-                    inCommingChild2 = children.get(activeIndex - 2);
+                int previous2 = carousel.ringIndex(activeIndex - 2);
+                if(previous2 >= 0 && count > 2) {
+                    inCommingChild2 = carousel.getPage(previous2);
                     rect = inCommingChild2.getRect();
                     rect.x =  inCommingChild.getRect().x + inCommingChild.getRect().width;
                 }
-                activeIndex--;
+                activeIndex = previous;
             }
 
         }
@@ -482,33 +1666,66 @@ public class Carousel extends ClippedContainer{
          */
         public void singleStep (int time) {
             if(direction == 0) return;
+            if(carousel.isMultiPage()) {
+                long scrolled = (long) scrollSteps * travel(time, Bezier.FIXED_ONE);
+                carousel.layoutAtFixedPosition(((long) scrollOrigin << 16) + scrolled);
+                return;
+            }
             int inCommingX = 0;
             int inComming2X = 0;
             int outCommingX = 0;
+            int width = getWidth();
             if(direction == BACKWARD) {
-                inCommingX = (int) (updateFunction(time) * getWidth() - getWidth());
+                inCommingX = travel(time, width) - width;
                 outCommingX = inCommingX + inCommingChild.getWidth();
                 if(inCommingChild2 != null) {
                     inComming2X = inCommingX - inCommingChild2.getWidth();
                 }
             }
             else {
-                inCommingX = - (int) (updateFunction(time) * getWidth() - getWidth());
+                inCommingX = width - travel(time, width);
                 outCommingX = inCommingX - outCommingChild.getWidth();
                 inComming2X = inCommingX + inCommingChild.getWidth();
             }
+            if(snapshotting) {
+                inCommingSnapshotX = inCommingX;
+                inComming2SnapshotX = inComming2X;
+                outCommingSnapshotX = outCommingX;
+                requestPaint();
+                return;
+            }
             Rect r = inCommingChild.getRect();
             inCommingChild.setRect(inCommingX, r.y, r.width, r.height);
+            cull(inCommingChild);
             r = outCommingChild.getRect();
             outCommingChild.setRect(outCommingX, r.y, r.width, r.height);
+            cull(outCommingChild);
             if(inCommingChild2 != null) {
                 r = inCommingChild2.getRect();
                 inCommingChild2.setRect(inComming2X, r.y, r.width, r.height);
+                cull(inCommingChild2);
             }
             resetSetPositions();
-            Window.needsPaint = true;
+            requestPaint();
+
 
+        }
 
+        /**
+         * distance travelled by the incoming child at the given time
+         * @param time
+         * @param width
+         * @return
+         */
+        protected int travel(int time, int width) {
+            if(easingMode == EASING_FIXED) {
+                int fixedTime = (int) (((long) time << 16) / animationTime);
+                if(fixedTime > Bezier.FIXED_ONE) fixedTime = Bezier.FIXED_ONE;
+                long fraction = fromFraction + (((long) (toFraction - fromFraction) * curve().getFixedProgression(fixedTime)) >> 16);
+                return (int) ((fraction * width) >> 16);
+            }
+            double fraction = fromFraction + (toFraction - fromFraction) * updateFunction(time);
+            return (int) (fraction * width / Bezier.FIXED_ONE);
         }
 
         /**
@@ -517,17 +1734,224 @@ public class Carousel extends ClippedContainer{
          * @return
          */
         public double updateFunction(double time) {
+            Bezier bezier = curve();
+            if(easingMode == EASING_FIXED) {
+                return bezier.getFixedProgression((int) (time * Bezier.FIXED_ONE / animationTime)) / (double) Bezier.FIXED_ONE;
+            }
+            if(easingMode == EASING_EXACT) {
+                lastT = bezier.solveCurveX(time/animationTime, lastT, epsilon);
+                return bezier.sampleCurveY(lastT);
+            }
             return bezier.getProgression(time/animationTime);
         }
 
+        /**
+         * curve of the current transition type, taken from the shared registry
+         * @return
+         */
+        protected Bezier curve() {
+            if(bezier == null)
+                bezier = Bezier.of(transitionType.x1, transitionType.y1, transitionType.x2, transitionType.y2);
+            return bezier;
+        }
+
+    }
+
+    /**
+     * Transition animator moving the pages with a critically damped spring instead of a Bezier
+     * curve. Navigating while a transition runs retargets the spring from its current position and
+     * velocity, so taps are never dropped and nothing restarts or queues. The spring settles in
+     * about the animation time and stops as soon as it comes to rest. Snapshot transitions are not
+     * supported by this animator.
+     * <pre>
+     *      carousel.setTransitionAnimator(carousel.new SpringTransitionAnimator(carousel));
+     * </pre>
+     */
+    public class SpringTransitionAnimator extends TransitionAnimator {
+        /** current position, in pages */
+        double position;
+        /** current velocity, in pages per millisecond */
+        double velocity;
+        /** index the spring moves to */
+        int target;
+        /** page the spring moves to */
+        private Control targetPage;
+        /** indicates the target page was notified it will appear */
+        private boolean targetAppearing;
+        /** distance to the target, in pixels, under which the spring is at rest */
+        protected double restDistance = 0.5;
+        /** speed, in pixels per millisecond, under which the spring is at rest */
+        protected double restVelocity = 0.05;
+        /** frames of the spring, driven by the shared scheduler */
+        private final CarouselScheduler.Animation springAnimation = new CarouselScheduler.Animation() {
+            @Override
+            protected boolean step(int elapsed) {
+                int start = measuring ? Vm.getTimeStamp() : 0;
+                boolean moving = springStep(elapsed);
+                if(measuring) {
+                    metrics.stepTime += Vm.getTimeStamp() - start;
+                    metrics.frame(elapsed);
+                }
+                if(!moving) {
+                    isAnimating = false;
+                    if(targetAppearing) pageDidAppear(targetPage);
+                    targetAppearing = false;
+                    armRotation();
+                    schedulePrewarm();
+                    if(measuring) endMeasure();
+                }
+                return moving;
+            }
+        };
+
+        /**
+         * Constructor
+         * @param carousel
+         */
+        public SpringTransitionAnimator(Carousel carousel) {
+            super(carousel);
+        }
+
+        @Override
+        public void begin(int direction) {
+            int from = isAnimating ? target : activeIndex;
+            animateTo(direction == FORWARD ? from + 1 : from - 1);
+        }
+
+        @Override
+        public void begin(int direction, int from, boolean advance) {
+            if(isAnimating || carousel.getWidth() <= 0) return;
+            int stride = carousel.getPageStride();
+            int index = activeIndex;
+            double offset = (double) from / stride;
+            position = direction == FORWARD ? index + offset : index - offset;
+            velocity = -carousel.getDragVelocity() / stride;
+            start(direction, advance ? (direction == FORWARD ? index + 1 : index - 1) : index);
+        }
+
+        @Override
+        protected void onPagesShifted(int shift) {
+            int moved = unwrap(activeIndex + shift, target + shift);
+            position += moved - target;
+            target = moved;
+        }
+
+        @Override
+        protected void onTargetRemoved() {
+            int count = carousel.getPageCount();
+            if(count == 0) {
+                CarouselScheduler.getInstance().stop(springAnimation);
+                isAnimating = false;
+                targetPage = null;
+                targetAppearing = false;
+                if(measuring) endMeasure();
+                return;
+            }
+            // keep moving, to the page now at the index, which the carousel already notified
+            target = unwrap(activeIndex, (int) Math.round(position));
+            targetPage = carousel.getPage(activeIndex);
+            targetAppearing = false;
+        }
+
+        @Override
+        public void navigate(int steps) {
+            if(steps != 0) animateTo((isAnimating ? target : activeIndex) + steps);
+        }
+
+        @Override
+        public void jumpTo(int index) {
+            int count = carousel.getPageCount();
+            if(!loop || count < 2) {
+                animateTo(index);
+                return;
+            }
+            // go the shorter way around from where the spring is heading
+            int from = isAnimating ? target : activeIndex;
+            int steps = carousel.ringIndex(index - from);
+            animateTo(from + (steps > count / 2 ? steps - count : steps));
+        }
+
+        /**
+         * move to a page, retargeting the spring if a transition is running. In loop mode indexes
+         * past the ends keep going around the ring.
+         * @param index
+         */
+        public void animateTo(int index) {
+            int count = carousel.getPageCount();
+            if(count < 2 || carousel.getWidth() <= 0) return;
+            if(!loop) index = Math.max(0, Math.min(index, count - 1));
+            if(!isAnimating) {
+                if(index == activeIndex) return;
+                position = activeIndex;
+                velocity = 0;
+            }
+            start(index > position ? FORWARD : BACKWARD, index);
+        }
+
+        private void start(int direction, int index) {
+            int count = carousel.getPageCount();
+            if(!loop) index = Math.max(0, Math.min(index, count - 1));
+            // target and position are not wrapped, so the spring moves continuously around the ring
+            int page = carousel.ringIndex(index);
+            if(!isAnimating && page != activeIndex) pageWillDisappear(carousel.getPage(activeIndex));
+            if(isAnimating && index != target) pageWillDisappear(targetPage);
+            if(isAnimating ? index != target : page != activeIndex) {
+                Control c = carousel.getPage(page);
+                prewarm(c);
+                pageWillAppear(c);
+                targetAppearing = true;
+            }
+            target = index;
+            targetPage = carousel.getPage(page);
+            activeIndex = page;
+            this.direction = direction;
+            carousel.prefetch(direction);
+            if(isAnimating) return;
+            isAnimating = true;
+            startMeasure(direction);
+            carousel.layoutAtPosition(position);
+            CarouselScheduler.getInstance().start(springAnimation);
+        }
+
+        /**
+         * advance the spring by the elapsed time using the closed form solution of a critically
+         * damped oscillator, exact for any frame interval
+         * @param elapsed
+         * @return false once the spring is at rest
+         */
+        protected boolean springStep(int elapsed) {
+            double omega = 6.0 / Math.max(1, animationTime);
+            double x = position - target;
+            double b = velocity + omega * x;
+            double decay = Math.exp(-omega * elapsed);
+            x = (x + b * elapsed) * decay;
+            velocity = (velocity - omega * b * elapsed) * decay;
+            int stride = carousel.getPageStride();
+            if(Math.abs(x) * stride < restDistance && Math.abs(velocity) * stride < restVelocity) {
+                // back in the range of the pages after going around the ring
+                position = target = activeIndex;
+                velocity = 0;
+                carousel.layoutAtPosition(target);
+                return false;
+            }
+            position = target + x;
+            carousel.layoutAtPosition(position);
+            return true;
+        }
     }
 
     /**
      * an Extendable class to adapt Carousel to the programmer needs
      */
     public static class Adapter {
-        /* indicator images */
+        /* indicator images, taken from the shared assets on first draw */
         Image disabled, enabled;
+        /** size and color the indicator images were taken for */
+        int indicatorImagesSize, indicatorImagesColor;
+        /* chevron images, taken from the shared assets on first draw */
+        Image leftChevron, rightChevron;
+        /** color the chevron images were taken for */
+        int chevronColor;
         /** carousel instance */
         protected Carousel carousel;
         /** space between indicators */
@@ -543,6 +1967,21 @@ public class Carousel extends ClippedContainer{
         protected int buttonColor = Color.WHITE;
         /** indicators color */
         protected int indicatorColor = Color.WHITE;
+        /** indicates if indicatorColor was set, the original colors of the images are kept otherwise */
+        protected boolean indicatorColorSet = false;
+        /** distance between the buttons and the sides of the carousel */
+        protected int buttonMargin = UnitsConverter.toPixels(DP + 8);
+        /** distance between the indicators and the bottom of the carousel */
+        protected int indicatorMargin = UnitsConverter.toPixels(DP + 35);
+        /** maximum number of indicators shown at once, 0 shows one indicator per page */
+        protected int maxIndicators = 0;
+        /** disabled indicators composited once, rebuilt when the layout or color changes */
+        Image strip;
+        /** smaller disabled indicator drawn at the edges of a windowed strip */
+        Image edge;
+        /** layout the strip was built for */
+        int stripCount = -1, stripSize, stripSpace;
+        boolean stripLeftEdge, stripRightEdge;
 
         /**
          * Constructor
@@ -550,12 +1989,6 @@ public class Carousel extends ClippedContainer{
          */
         Adapter(Carousel carousel) {
             this.carousel = carousel;
-            try {
-                disabled = new Image("carousel_indicator_disabled.png").getHwScaledInstance(size, size);
-                enabled = new Image("carousel_indicator_enabled.png").getHwScaledInstance(size, size);
-            } catch (ImageException | IOException e) {
-                e.printStackTrace();
-            }
         }
 
         /**
@@ -588,8 +2021,26 @@ public class Carousel extends ClippedContainer{
          */
         public void setIndicatorColor(int indicatorColor) {
             this.indicatorColor = indicatorColor;
-            disabled.applyColor2(indicatorColor);
-            enabled.applyColor2(indicatorColor);
+            indicatorColorSet = true;
+            strip = edge = null;
+        }
+
+        /**
+         * get the maximum number of indicators shown at once
+         * @return
+         */
+        public int getMaxIndicators() {
+            return maxIndicators;
+        }
+
+        /**
+         * set the maximum number of indicators shown at once. With more pages, only a window of
+         * indicators around the active page is shown, the edge ones drawn smaller to show more
+         * pages follow. 0 shows one indicator per page.
+         * @param maxIndicators
+         */
+        public void setMaxIndicators(int maxIndicators) {
+            this.maxIndicators = maxIndicators;
         }
 
         /**
@@ -597,17 +2048,75 @@ public class Carousel extends ClippedContainer{
          * @param g
          */
         public void onDrawIndicators(Graphics g) {
-            indicatorY = carousel.getHeight() - UnitsConverter.toPixels(DP + 35);
-            int totalsize = carousel.orderedChildren.size()*(size + space) - space;
+            indicatorY = carousel.getHeight() - indicatorMargin;
+            int color = indicatorColorSet ? indicatorColor : CarouselAssets.ORIGINAL_COLOR;
+            if(disabled == null || indicatorImagesSize != size || indicatorImagesColor != color) {
+                disabled = CarouselAssets.getIndicator(false, size, color);
+                enabled = CarouselAssets.getIndicator(true, size, color);
+                indicatorImagesSize = size;
+                indicatorImagesColor = color;
+                strip = edge = null;
+            }
+            if(disabled == null || enabled == null) return;
+            int pageCount = carousel.getPageCount();
+            int count = pageCount;
+            int first = 0;
+            if(maxIndicators > 0 && pageCount > maxIndicators) {
+                count = maxIndicators;
+                first = Math.min(Math.max(0, carousel.activeIndex - count / 2), pageCount - count);
+            }
+            int totalsize = count*(size + space) - space;
             int x = (carousel.getWidth() - totalsize) / 2;
 
             // Draw disabled indicators
-            for (int i = 0; i < carousel.orderedChildren.size(); i++) {
-                //g.foreColor = g.backColor = 0xE6DAC8;
-                g.drawImage(disabled, x + i*(space + size), indicatorY);
+            Image strip = getStrip(count, first > 0, first + count < pageCount);
+            if(strip != null) {
+                g.drawImage(strip, x, indicatorY);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    g.drawImage(disabled, x + i*(space + size), indicatorY);
+                }
             }
             // Draw enabled indicator
-            g.drawImage(enabled, x + carousel.activeIndex *(space + size), indicatorY);
+            g.drawImage(enabled, x + (carousel.activeIndex - first) *(space + size), indicatorY);
+        }
+
+        /**
+         * disabled indicators composited in a single image, built again only when the number of
+         * indicators, their size, spacing, color or edges change
+         * @param count
+         * @param leftEdge draw the first indicator smaller
+         * @param rightEdge draw the last indicator smaller
+         * @return null if the image could not be created
+         */
+        protected Image getStrip(int count, boolean leftEdge, boolean rightEdge) {
+            if(strip != null && stripCount == count && stripSize == size && stripSpace == space
+                    && stripLeftEdge == leftEdge && stripRightEdge == rightEdge)
+                return strip;
+            strip = null;
+            if(stripSize != size) edge = null;
+            try {
+                if((leftEdge || rightEdge) && edge == null)
+                    edge = CarouselAssets.getIndicator(false, size / 2, indicatorImagesColor);
+                Image image = new Image(count*(size + space) - space, size);
+                Graphics sg = image.getGraphics();
+                for (int i = 0; i < count; i++) {
+                    // without a shrunk dot, the edges get a regular one
+                    if(edge != null && ((i == 0 && leftEdge) || (i == count - 1 && rightEdge)))
+                        sg.drawImage(edge, i*(space + size) + size / 4, size / 4);
+                    else
+                        sg.drawImage(disabled, i*(space + size), 0);
+                }
+                strip = image;
+                stripCount = count;
+                stripSize = size;
+                stripSpace = space;
+                stripLeftEdge = leftEdge;
+                stripRightEdge = rightEdge;
+            } catch (ImageException e) {
+                e.printStackTrace();
+            }
+            return strip;
         }
 
         /**
@@ -615,29 +2124,37 @@ public class Carousel extends ClippedContainer{
          * @param g
          */
         public void onDrawButtons(Graphics g) {
-            Font f = Font.getFont(MaterialIcons._CHEVRON_LEFT.fontName(), false, 24);
-            g.setFont(f);
-            g.foreColor = buttonColor;
-            IconType left = MaterialIcons._CHEVRON_LEFT;
+            if(leftChevron == null || chevronColor != buttonColor) {
+                leftChevron = CarouselAssets.getChevron(false, buttonColor);
+                rightChevron = CarouselAssets.getChevron(true, buttonColor);
+                chevronColor = buttonColor;
+            }
+            if(leftChevron == null || rightChevron == null) return;
+            Font f = CarouselAssets.getChevronFont();
 
             int height = f.fm.height;
-            int margin = UnitsConverter.toPixels(DP + 8);
-            int y = (indicatorY - height)/2;
+            int y = (indicatorY - height)/2 - height/2;
 
             // LEFT
-            g.drawText(left.toString(), margin, y - f.fm.height/2);
+            g.drawImage(leftChevron, buttonMargin, y);
             // RIGHT
-            IconType right = MaterialIcons._CHEVRON_RIGHT;
-            int width = f.fm.height - f.fm.stringWidth(right.toString()); // solution for wrong width
-            g.drawText(right.toString(), carousel.getWidth() - width - margin, y - f.fm.height/2);
+            g.drawImage(rightChevron, carousel.getWidth() - rightChevron.getWidth() - buttonMargin, y);
         }
     }
 
     @Override
     public void paintChildren() {
-        super.paintChildren();
+        if(rotationPaused) {
+            rotationPaused = false;
+            armRotation();
+        }
+        boolean measure = measuring && isAnimating;
+        int start = measure ? Vm.getTimeStamp() : 0;
+        if(transitionAnimator.snapshotting) transitionAnimator.paintSnapshots(getGraphics());
+        else super.paintChildren();
         if(showIndicators) adapter.onDrawIndicators(getGraphics());
         if(showButtons) adapter.onDrawButtons(getGraphics());
+        if(measure) metrics.paintTime += Vm.getTimeStamp() - start;
     }
 
     @Override
@@ -645,28 +2162,288 @@ public class Carousel extends ClippedContainer{
         if(event instanceof CarouselEvent) {
             switch (event.type) {
                 case CarouselEvent.FORWARD:
-                    transitionAnimator.begin(TransitionAnimator.FORWARD);
+                    transitionAnimator.navigate(1);
                     break;
                 case CarouselEvent.BACKWARD:
-                    transitionAnimator.begin(TransitionAnimator.BACKWARD);
+                    transitionAnimator.navigate(-1);
             }
             return;
         }
         switch (event.type) {
+            case EventType.PEN_DOWN:
+                if(dragEnabled && !isAnimating) {
+                    PenEvent penEvent = (PenEvent)event;
+                    tracking = true;
+                    dragging = false;
+                    dragStartX = dragX = penEvent.absoluteX;
+                    dragSampleCount = 0;
+                    addDragSample(dragX);
+                }
+                break;
+            case EventType.PEN_DRAG:
+                if(tracking) {
+                    PenEvent penEvent = (PenEvent)event;
+                    dragX = penEvent.absoluteX;
+                    addDragSample(dragX);
+                    if(!dragging && Math.abs(dragX - dragStartX) > Settings.touchTolerance) startDrag();
+                    if(dragging) {
+                        // only record the position, pages are moved once per frame by dragFrame
+                        dragDirty = true;
+                        CarouselScheduler.getInstance().start(dragFrame);
+                    }
+                }
+                break;
             case EventType.PEN_UP:
+                tracking = false;
+                if(dragging) {
+                    addDragSample(((PenEvent)event).absoluteX);
+                    endDrag();
+                    break;
+                }
                 PenEvent penEvent = (PenEvent)event;
+                // taps during a transition are coalesced by the animator instead of queued as events
                 if(penEvent.x >= getWidth()*0.75) {
-                    if(activeIndex + 1 < getChildren().length) postEvent(new CarouselEvent(CarouselEvent.FORWARD));
-                    ellapsedTimeToRotate = 0;
+                    transitionAnimator.navigate(1);
+                    armRotation();
                 }
                 else if (penEvent.x <= getWidth()*0.25) {
-                    if(activeIndex > 0) postEvent(new CarouselEvent(CarouselEvent.BACKWARD));
-                    ellapsedTimeToRotate = 0;
+                    transitionAnimator.navigate(-1);
+                    armRotation();
                 }
 
         }
     }
 
+    /**
+     * set if pages follow the finger when dragged
+     * @param dragEnabled
+     */
+    public void setDragEnabled(boolean dragEnabled) {
+        this.dragEnabled = dragEnabled;
+    }
+
+    /**
+     * set the number of pages ahead of the active one, in the direction of navigation and of
+     * auto rotation, whose {@link ImagePage} images are decoded before they are shown. With an
+     * item provider it is limited by the size of the page pool.
+     * @param prefetchDistance 0 to disable prefetching
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        if(prefetchDistance < 0) throw new AssertionError("prefetchDistance must not be negative");
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    public int getPrefetchDistance() {
+        return prefetchDistance;
+    }
+
+    /**
+     * prefetch the image pages following the active page in a direction, and in the direction of
+     * auto rotation
+     * @param direction
+     */
+    protected void prefetch(int direction) {
+        lastDirection = direction;
+        if(prefetchDistance <= 0 || getWidth() <= 0) return;
+        int step = direction == TransitionAnimator.BACKWARD ? -1 : 1;
+        prefetchFrom(step);
+        if(auto && step < 0) prefetchFrom(1);
+    }
+
+    /**
+     * set the time idle ticks may spend prewarming the pages likely to be shown next. A page is
+     * prewarmed in one go, the budget is checked between pages.
+     * @param prewarmBudget in milliseconds, 0 to prewarm pages only when a transition to them starts
+     */
+    public void setPrewarmBudget(int prewarmBudget) {
+        if(prewarmBudget < 0) throw new AssertionError("prewarmBudget must not be negative");
+        this.prewarmBudget = prewarmBudget;
+        schedulePrewarm();
+    }
+
+    public int getPrewarmBudget() {
+        return prewarmBudget;
+    }
+
+    /**
+     * prewarm the pages likely to be shown next on the following idle ticks
+     */
+    protected void schedulePrewarm() {
+        if(prewarmBudget > 0 && getWidth() > 0 && getPageCount() > 1) CarouselScheduler.getInstance().start(prewarmTask);
+    }
+
+    /**
+     * prewarm the next pages not prewarmed yet, in the order they are likely to be shown, until
+     * the deadline
+     * @param deadline timestamp after which no other page is started
+     * @return true once every candidate page is prewarmed
+     */
+    private boolean prewarmNext(int deadline) {
+        int step = lastDirection == TransitionAnimator.BACKWARD ? -1 : 1;
+        int distance = Math.max(1, prefetchDistance);
+        if(itemProvider != null) distance = Math.min(distance, PAGE_POOL_SIZE / 2);
+        // counted from the last page visible on each side
+        int visible = (getMaxVisiblePages() - 1) / 2;
+        // going back against the navigation is less likely, only the neighbour is prewarmed
+        return prewarmFrom(step, visible + distance, deadline)
+                && (!auto || step > 0 || prewarmFrom(1, visible + distance, deadline))
+                && prewarmFrom(-step, visible + 1, deadline);
+    }
+
+    private boolean prewarmFrom(int step, int distance, int deadline) {
+        for (int i = 1; i <= distance; i++) {
+            int index = ringIndex(activeIndex + step * i);
+            if(index < 0 || index == activeIndex) return true;
+            Control page = getPage(index);
+            if(prewarmedPages.contains(page)) continue;
+            if(Vm.getTimeStamp() >= deadline) return false;
+            prewarm(page);
+        }
+        return true;
+    }
+
+    /**
+     * initialize and lay out a page at the size of the carousel, if it was not already
+     * @param page
+     */
+    protected void prewarm(Control page) {
+        if(page == null) return;
+        // pages are sized lazily, and again after the carousel is resized
+        int pageWidth = getPageWidth();
+        if(page.getWidth() != pageWidth || page.getHeight() != getHeight()) {
+            page.setRect(page.getX(), page.getY(), pageWidth, getHeight());
+        }
+        if(!prewarmedPages.add(page)) return;
+        if(page instanceof CarouselPage) ((CarouselPage) page).onPrewarm(this);
+        if(page instanceof ImagePage) ((ImagePage) page).prefetch(pageWidth, getHeight());
+    }
+
+    protected void pageWillAppear(Control page) {
+        if(page instanceof CarouselPage) ((CarouselPage) page).onWillAppear(this);
+    }
+
+    protected void pageDidAppear(Control page) {
+        if(page instanceof CarouselPage) ((CarouselPage) page).onDidAppear(this);
+    }
+
+    protected void pageWillDisappear(Control page) {
+        if(page instanceof CarouselPage) ((CarouselPage) page).onWillDisappear(this);
+    }
+
+    private void pageRecycled(Control page) {
+        prewarmedPages.remove(page);
+        if(page instanceof CarouselPage) ((CarouselPage) page).onRecycled(this);
+    }
+
+    private void prefetchFrom(int step) {
+        // the pooled pages beyond the active one and its two neighbours are in use by a transition
+        int distance = itemProvider != null ? Math.min(prefetchDistance, PAGE_POOL_SIZE / 2) : prefetchDistance;
+        // counted from the last page visible on each side
+        distance += (getMaxVisiblePages() - 1) / 2;
+        for (int i = 1; i <= distance; i++) {
+            int index = ringIndex(activeIndex + step * i);
+            if(index < 0 || index == activeIndex) return;
+            Control page = getPage(index);
+            if(page instanceof ImagePage) ((ImagePage) page).prefetch(getPageWidth(), getHeight());
+        }
+    }
+
+    /**
+     * whether a page is shown by the current transition or drag
+     * @param page
+     * @return
+     */
+    private boolean isMoving(Control page) {
+        TransitionAnimator t = transitionAnimator;
+        return isAnimating && (page == t.outCommingChild || page == t.inCommingChild || page == t.inCommingChild2)
+                || (isAnimating || dragging) && contains(positionedPages, positionedCount, page)
+                || contains(placedPages, placedCount, page)
+                || dragging && (page == dragPrevious || page == dragNext);
+    }
+
+    private void addDragSample(int x) {
+        int i = dragSampleCount++ % DRAG_SAMPLES;
+        dragSampleX[i] = x;
+        dragSampleTime[i] = Vm.getTimeStamp();
+    }
+
+    /**
+     * velocity of the pen over the recent samples, in pixels per millisecond
+     * @return
+     */
+    protected double getDragVelocity() {
+        if(dragSampleCount < 2) return 0;
+        int last = (dragSampleCount - 1) % DRAG_SAMPLES;
+        int first = dragSampleCount > DRAG_SAMPLES ? dragSampleCount % DRAG_SAMPLES : 0;
+        int time = dragSampleTime[last] - dragSampleTime[first];
+        return time <= 0 ? 0 : (double) (dragSampleX[last] - dragSampleX[first]) / time;
+    }
+
+    private void startDrag() {
+        dragging = true;
+        int previous = ringIndex(activeIndex - 1), next = ringIndex(activeIndex + 1);
+        dragPrevious = previous >= 0 && previous != activeIndex ? getPage(previous) : null;
+        dragNext = next >= 0 && next != activeIndex ? getPage(next) : null;
+        prewarm(dragPrevious);
+        prewarm(dragNext);
+    }
+
+    /**
+     * position the active page and its neighbours at the latest pen position
+     */
+    protected void applyDrag() {
+        dragDirty = false;
+        int width = getWidth();
+        int dx = clampDrag(dragX - dragStartX);
+        if(isMultiPage()) {
+            layoutAtPosition(activeIndex - (double) dx / getPageStride());
+            return;
+        }
+        Control active = getPage(activeIndex);
+        active.setRect(dx, active.getY(), width, active.getHeight());
+        cull(active);
+        // with two pages in loop mode both neighbours are the same page, placed on the side shown
+        if(dragNext != null && (dragNext != dragPrevious || dx <= 0)) {
+            dragNext.setRect(dx + width, dragNext.getY(), width, dragNext.getHeight());
+            cull(dragNext);
+        }
+        else if(dragPrevious != null) {
+            dragPrevious.setRect(dx - width, dragPrevious.getY(), width, dragPrevious.getHeight());
+            cull(dragPrevious);
+        }
+        requestPaint();
+    }
+
+    private int clampDrag(int dx) {
+        int width = getPageStride();
+        if(dx < 0) return dragNext == null ? 0 : Math.max(dx, -width);
+        return dragPrevious == null ? 0 : Math.min(dx, width);
+    }
+
+    /**
+     * on release, settle back or move to the neighbour the pages were dragged to, depending on
+     * the distance and velocity of the drag
+     */
+    private void endDrag() {
+        dragging = false;
+        dragDirty = false;
+        CarouselScheduler.getInstance().stop(dragFrame);
+        int dx = clampDrag(dragX - dragStartX);
+        double velocity = getDragVelocity();
+        int width = getPageStride();
+        if(dx == 0) {
+            setActiveIndex(activeIndex);
+        } else if(dx < 0) {
+            boolean advance = velocity < -flingVelocity || (-dx > width / 2 && velocity <= flingVelocity);
+            transitionAnimator.begin(TransitionAnimator.FORWARD, -dx, advance);
+        } else {
+            boolean advance = velocity > flingVelocity || (dx > width / 2 && velocity >= -flingVelocity);
+            transitionAnimator.begin(TransitionAnimator.BACKWARD, dx, advance);
+        }
+        dragPrevious = dragNext = null;
+        armRotation();
+    }
+
     /**
      * Carousel event
      */
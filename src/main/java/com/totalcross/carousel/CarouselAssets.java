@@ -0,0 +1,107 @@
+package com.totalcross.carousel;
+
+import totalcross.io.IOException;
+import totalcross.sys.Settings;
+import totalcross.ui.font.Font;
+import totalcross.ui.gfx.Graphics;
+import totalcross.ui.icon.IconType;
+import totalcross.ui.icon.MaterialIcons;
+import totalcross.ui.image.Image;
+import totalcross.ui.image.ImageException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Images shared by every carousel: indicators and chevron glyphs, created on first use and keyed
+ * by size, screen density and color. The returned images are shared and must not be modified.
+ */
+public final class CarouselAssets {
+    /** color value keeping the colors of the original image */
+    public static final int ORIGINAL_COLOR = -1;
+    /** font size of the chevron buttons */
+    public static final int CHEVRON_FONT_SIZE = 24;
+
+    private static final int DISABLED_INDICATOR = 0;
+    private static final int ENABLED_INDICATOR = 1;
+    private static final int LEFT_CHEVRON = 2;
+    private static final int RIGHT_CHEVRON = 3;
+
+    private static final Map<Long, Image> images = new HashMap<Long, Image>();
+    private static Font chevronFont;
+
+    private CarouselAssets() {
+    }
+
+    /**
+     * indicator image
+     * @param enabled the indicator of the active page, or the one of the other pages
+     * @param size width and height in pixels
+     * @param color color applied to the image, or {@link #ORIGINAL_COLOR}
+     * @return null if the image could not be loaded
+     */
+    public static synchronized Image getIndicator(boolean enabled, int size, int color) {
+        Long key = key(enabled ? ENABLED_INDICATOR : DISABLED_INDICATOR, size, color);
+        Image image = images.get(key);
+        if(image == null) {
+            try {
+                image = new Image(enabled ? "carousel_indicator_enabled.png" : "carousel_indicator_disabled.png")
+                        .getHwScaledInstance(size, size);
+                if(color != ORIGINAL_COLOR) image.applyColor2(color);
+                images.put(key, image);
+            } catch (ImageException | IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return image;
+    }
+
+    /**
+     * chevron glyph rendered once in an image as tall as the font
+     * @param right the right chevron, or the left one
+     * @param color
+     * @return null if the image could not be created
+     */
+    public static synchronized Image getChevron(boolean right, int color) {
+        Long key = key(right ? RIGHT_CHEVRON : LEFT_CHEVRON, CHEVRON_FONT_SIZE, color);
+        Image image = images.get(key);
+        if(image == null) {
+            Font f = getChevronFont();
+            IconType icon = right ? MaterialIcons._CHEVRON_RIGHT : MaterialIcons._CHEVRON_LEFT;
+            String glyph = icon.toString();
+            try {
+                image = new Image(Math.max(f.fm.stringWidth(glyph), f.fm.height), f.fm.height);
+                Graphics g = image.getGraphics();
+                g.setFont(f);
+                g.foreColor = color;
+                g.drawText(glyph, 0, 0);
+                images.put(key, image);
+            } catch (ImageException e) {
+                e.printStackTrace();
+            }
+        }
+        return image;
+    }
+
+    /**
+     * font of the chevron glyphs
+     * @return
+     */
+    public static synchronized Font getChevronFont() {
+        if(chevronFont == null)
+            chevronFont = Font.getFont(MaterialIcons._CHEVRON_LEFT.fontName(), false, CHEVRON_FONT_SIZE);
+        return chevronFont;
+    }
+
+    /**
+     * drop every cached image, they are created again on next use
+     */
+    public static synchronized void clear() {
+        images.clear();
+    }
+
+    private static Long key(int kind, int size, int color) {
+        long density = Math.round(Settings.screenDensity * 100) & 0xFFFF;
+        return (density << 48) | ((long) kind << 44) | ((long) (size & 0xFFF) << 32) | (color & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,31 @@
+package com.totalcross.carousel;
+
+import totalcross.ui.Control;
+
+/**
+ * Supplies the pages of a {@link Carousel} on demand. Set it with
+ * {@link Carousel#setItemProvider(CarouselItemProvider)}: the carousel then keeps only a small pool
+ * of page controls, created once by {@link #createPage()} and rebound to whichever item is about to
+ * be shown, so memory and layout cost do not grow with the number of items.
+ */
+public interface CarouselItemProvider {
+
+    /**
+     * number of items
+     * @return
+     */
+    int getItemCount();
+
+    /**
+     * create an empty page control, called once for each slot of the pool
+     * @return
+     */
+    Control createPage();
+
+    /**
+     * fill a pooled page with the data of the item at index
+     * @param page
+     * @param index
+     */
+    void bindPage(Control page, int index);
+}
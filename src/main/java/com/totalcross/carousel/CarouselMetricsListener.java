@@ -0,0 +1,24 @@
+package com.totalcross.carousel;
+
+/**
+ * Receives frame-time metrics of the transitions of a {@link Carousel}. Register it with
+ * {@link Carousel#setMetricsListener(CarouselMetricsListener)}; when no listener is registered the
+ * carousel does not measure anything.
+ */
+public interface CarouselMetricsListener {
+
+    /**
+     * called when a transition starts
+     * @param carousel
+     * @param direction {@link Carousel.TransitionAnimator#FORWARD} or {@link Carousel.TransitionAnimator#BACKWARD}
+     */
+    void onTransitionStart(Carousel carousel, int direction);
+
+    /**
+     * called when a transition ends. The metrics instance is reused by the carousel, so it is
+     * only valid during this call.
+     * @param carousel
+     * @param metrics
+     */
+    void onTransitionEnd(Carousel carousel, TransitionMetrics metrics);
+}
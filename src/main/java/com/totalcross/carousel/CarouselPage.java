@@ -0,0 +1,49 @@
+package com.totalcross.carousel;
+
+/**
+ * Lifecycle callbacks of a {@link Carousel} page, for page controls implementing it. Every method
+ * is called on the UI thread and does nothing by default.
+ * <p>
+ * Expensive initialization and first layout belong in {@link #onPrewarm(Carousel)}: the carousel
+ * calls it on idle ticks between transitions, for the pages most likely to be shown next, so the
+ * frames of the transitions are not spent building pages.
+ */
+public interface CarouselPage {
+
+    /**
+     * initialize and lay out the page before it is first shown. Called once, or once after each
+     * {@link #onRecycled(Carousel)}, either on an idle tick or, if the page was not prewarmed in
+     * time, just before a transition to it starts.
+     * @param carousel
+     */
+    default void onPrewarm(Carousel carousel) {
+    }
+
+    /**
+     * a transition to the page starts
+     * @param carousel
+     */
+    default void onWillAppear(Carousel carousel) {
+    }
+
+    /**
+     * the page became the active page and stopped moving
+     * @param carousel
+     */
+    default void onDidAppear(Carousel carousel) {
+    }
+
+    /**
+     * a transition away from the page starts
+     * @param carousel
+     */
+    default void onWillDisappear(Carousel carousel) {
+    }
+
+    /**
+     * the pooled page is about to be rebound to another item of the {@link CarouselItemProvider}
+     * @param carousel
+     */
+    default void onRecycled(Carousel carousel) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.totalcross.carousel;
+
+import totalcross.ui.Control;
+
+/**
+ * Creates and updates the pages of a {@link Carousel} from keyed items, for
+ * {@link Carousel#submitList(java.util.List, CarouselPageFactory)}. Items with the same key in two
+ * submitted lists are shown by the same page, so only the pages of new, removed or moved items
+ * change.
+ * @param <T> item type
+ */
+public interface CarouselPageFactory<T> {
+
+    /**
+     * key identifying an item across lists, compared with equals
+     * @param item
+     * @return
+     */
+    Object getKey(T item);
+
+    /**
+     * create the page of a new item
+     * @param item
+     * @return
+     */
+    Control createPage(T item);
+
+    /**
+     * update the page of an item whose key was already shown, called only when the item is not
+     * equal to the previous one
+     * @param page
+     * @param item
+     */
+    void bindPage(Control page, T item);
+}
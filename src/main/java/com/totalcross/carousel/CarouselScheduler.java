@@ -0,0 +1,346 @@
+package com.totalcross.carousel;
+
+import totalcross.sys.Vm;
+import totalcross.ui.MainWindow;
+import totalcross.ui.event.TimerEvent;
+import totalcross.ui.event.TimerListener;
+import totalcross.ui.event.UpdateListener;
+
+/**
+ * Process-wide scheduler driving every carousel from a single {@link UpdateListener}. Running
+ * animations live in a preallocated array and auto-rotate deadlines in a binary min-heap, so a
+ * tick walks only the animations in flight and peeks at the earliest deadline. The listener is
+ * registered with the MainWindow only while an animation runs; when only timers are pending a
+ * single TotalCross timer is armed for the earliest deadline, so an idle screen does not tick.
+ * <p>
+ * The application should call {@link #pause()} and {@link #resume()} from
+ * MainWindow.onMinimize and onRestore, so carousels stay asleep in background.
+ * <p>
+ * Frames are paced by a monotonic clock, {@link #getTime()}, rather than by the deltas reported
+ * to the listener: each animation receives the time really spent since its previous frame, so
+ * time-based animations neither drift nor run late when ticks are skipped or coalesced. Ticks
+ * coming faster than the target frame rate are ignored.
+ * <p>
+ * Like the rest of the UI, the scheduler must only be used from the UI thread.
+ */
+public final class CarouselScheduler implements UpdateListener, TimerListener {
+
+    /**
+     * Work run on every tick until {@link #step(int)} returns false
+     */
+    public static abstract class Animation {
+        /** position in the array of running animations, -1 when not running */
+        int slot = -1;
+        /** scheduler time of the previous frame of the animation, or of its start */
+        int lastFrame;
+
+        /**
+         * advance the animation
+         * @param elapsed milliseconds since the previous frame of the animation, or since it was
+         * started, on the scheduler clock
+         * @return false when the animation is over
+         */
+        protected abstract boolean step(int elapsed);
+
+        /**
+         * indicates if the animation is scheduled
+         * @return
+         */
+        public boolean isRunning() {
+            return slot >= 0;
+        }
+    }
+
+    /**
+     * Work run once when its deadline is reached
+     */
+    public static abstract class Timer {
+        /** position in the heap, -1 when not scheduled */
+        int heapIndex = -1;
+        /** Vm.getTimeStamp() at which the timer is due */
+        int deadline;
+
+        /**
+         * called when the deadline is reached. The timer is no longer scheduled and may schedule
+         * itself again.
+         */
+        protected abstract void run();
+
+        /**
+         * indicates if the timer is scheduled
+         * @return
+         */
+        public boolean isScheduled() {
+            return heapIndex >= 0;
+        }
+    }
+
+    /** default target frame rate */
+    public static final int DEFAULT_FRAME_RATE = 60;
+
+    private static CarouselScheduler instance;
+
+    private Animation[] animations = new Animation[8];
+    private int animationCount;
+    private Timer[] timers = new Timer[8];
+    private int timerCount;
+    private boolean registered;
+    private boolean timerListenerAdded;
+    /** TotalCross timer armed for the earliest deadline, null when none */
+    private TimerEvent wakeUp;
+    private int wakeUpDeadline;
+    private boolean paused;
+    private int pausedAt;
+    /** time spent paused, excluded from the scheduler clock */
+    private int pausedTime;
+    /** minimum interval between two frames, 0 to step on every tick */
+    private int frameInterval = 1000 / DEFAULT_FRAME_RATE;
+    /** scheduler time of the current or last frame */
+    private int frameTime;
+
+    private CarouselScheduler() {
+    }
+
+    /**
+     * the shared scheduler
+     * @return
+     */
+    public static CarouselScheduler getInstance() {
+        if(instance == null) instance = new CarouselScheduler();
+        return instance;
+    }
+
+    /**
+     * monotonic clock of the scheduler, in milliseconds: Vm.getTimeStamp() without the time spent
+     * paused. Only differences between two values are meaningful.
+     * @return
+     */
+    public int getTime() {
+        return (paused ? pausedAt : Vm.getTimeStamp()) - pausedTime;
+    }
+
+    /**
+     * scheduler time of the frame being stepped, or of the last one
+     * @return
+     */
+    public int getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * limit the rate at which animations are stepped; ticks coming sooner are ignored
+     * @param framesPerSecond 0 to step on every tick
+     */
+    public void setTargetFrameRate(int framesPerSecond) {
+        if(framesPerSecond < 0) throw new AssertionError("negative frame rate: " + framesPerSecond);
+        frameInterval = framesPerSecond == 0 ? 0 : 1000 / framesPerSecond;
+    }
+
+    /**
+     * minimum interval between two frames, in milliseconds
+     * @return 0 if every tick is a frame
+     */
+    public int getFrameInterval() {
+        return frameInterval;
+    }
+
+    /**
+     * run an animation on every frame, does nothing if it is already running
+     * @param animation
+     */
+    public void start(Animation animation) {
+        if(animation.slot >= 0) return;
+        animation.lastFrame = getTime();
+        if(animationCount == animations.length) {
+            Animation[] grown = new Animation[animationCount * 2];
+            System.arraycopy(animations, 0, grown, 0, animationCount);
+            animations = grown;
+        }
+        animation.slot = animationCount;
+        animations[animationCount++] = animation;
+        updateRegistration();
+    }
+
+    /**
+     * stop a running animation
+     * @param animation
+     */
+    public void stop(Animation animation) {
+        int slot = animation.slot;
+        if(slot < 0) return;
+        Animation last = animations[--animationCount];
+        animations[slot] = last;
+        last.slot = slot;
+        animations[animationCount] = null;
+        animation.slot = -1;
+        updateRegistration();
+    }
+
+    /**
+     * schedule a timer to run after the given delay, moving it if it was already scheduled
+     * @param timer
+     * @param delay in milliseconds
+     */
+    public void schedule(Timer timer, int delay) {
+        int deadline = Vm.getTimeStamp() + delay;
+        if(timer.heapIndex >= 0) {
+            int previous = timer.deadline;
+            timer.deadline = deadline;
+            if(deadline - previous < 0) siftUp(timer.heapIndex);
+            else siftDown(timer.heapIndex);
+            // the wake-up may be armed for the previous earliest deadline
+            updateRegistration();
+            return;
+        }
+        if(timerCount == timers.length) {
+            Timer[] grown = new Timer[timerCount * 2];
+            System.arraycopy(timers, 0, grown, 0, timerCount);
+            timers = grown;
+        }
+        timer.deadline = deadline;
+        timer.heapIndex = timerCount;
+        timers[timerCount++] = timer;
+        siftUp(timer.heapIndex);
+        updateRegistration();
+    }
+
+    /**
+     * cancel a scheduled timer
+     * @param timer
+     */
+    public void cancel(Timer timer) {
+        int index = timer.heapIndex;
+        if(index < 0) return;
+        Timer last = timers[--timerCount];
+        timers[timerCount] = null;
+        timer.heapIndex = -1;
+        if(last != timer) {
+            timers[index] = last;
+            last.heapIndex = index;
+            siftDown(index);
+            siftUp(last.heapIndex);
+        }
+        updateRegistration();
+    }
+
+    /**
+     * stop ticking and arming timers, typically when the application goes to background
+     */
+    public void pause() {
+        if(paused) return;
+        paused = true;
+        pausedAt = Vm.getTimeStamp();
+        updateRegistration();
+    }
+
+    /**
+     * resume after {@link #pause()}. Pending deadlines are pushed back by the time spent paused.
+     */
+    public void resume() {
+        if(!paused) return;
+        paused = false;
+        int pausedFor = Vm.getTimeStamp() - pausedAt;
+        pausedTime += pausedFor;
+        for (int i = 0; i < timerCount; i++) {
+            timers[i].deadline += pausedFor;
+        }
+        updateRegistration();
+    }
+
+    @Override
+    public void updateListenerTriggered(int elapsed) {
+        int now = getTime();
+        // a millisecond of slack so ticks of a display at the target rate are not dropped to jitter
+        if(now - frameTime >= frameInterval - 1) {
+            frameTime = now;
+            stepAnimations();
+        }
+        runDueTimers();
+    }
+
+    private void stepAnimations() {
+        for (int i = 0; i < animationCount; ) {
+            Animation animation = animations[i];
+            // animations started during this frame are stepped with no time elapsed
+            int interval = frameTime - animation.lastFrame;
+            if(interval < 0) interval = 0;
+            else animation.lastFrame = frameTime;
+            if(animation.step(interval)) i++;
+            else if(animation.slot >= 0) stop(animation);
+        }
+    }
+
+    @Override
+    public void timerTriggered(TimerEvent e) {
+        if(e != wakeUp) return;
+        MainWindow.getMainWindow().removeTimer(wakeUp);
+        wakeUp = null;
+        runDueTimers();
+        updateRegistration();
+    }
+
+    private void runDueTimers() {
+        if(timerCount == 0 || paused) return;
+        int now = Vm.getTimeStamp();
+        while(timerCount > 0 && timers[0].deadline - now <= 0) {
+            Timer timer = timers[0];
+            cancel(timer);
+            timer.run();
+        }
+    }
+
+    private void updateRegistration() {
+        MainWindow mainWindow = MainWindow.getMainWindow();
+        boolean needed = animationCount > 0 && !paused;
+        if(needed != registered) {
+            registered = needed;
+            if(needed) mainWindow.addUpdateListener(this);
+            else mainWindow.removeUpdateListener(this);
+        }
+        // a single wake-up for the earliest deadline, only needed while nothing ticks
+        boolean sleep = !needed && !paused && timerCount > 0;
+        if(wakeUp != null && (!sleep || wakeUpDeadline != timers[0].deadline)) {
+            mainWindow.removeTimer(wakeUp);
+            wakeUp = null;
+        }
+        if(sleep && wakeUp == null) {
+            if(!timerListenerAdded) {
+                mainWindow.addTimerListener(this);
+                timerListenerAdded = true;
+            }
+            wakeUpDeadline = timers[0].deadline;
+            wakeUp = mainWindow.addTimer(Math.max(1, wakeUpDeadline - Vm.getTimeStamp()));
+        }
+    }
+
+    private void siftUp(int index) {
+        Timer timer = timers[index];
+        while(index > 0) {
+            int parent = (index - 1) >> 1;
+            Timer p = timers[parent];
+            if(timer.deadline - p.deadline >= 0) break;
+            timers[index] = p;
+            p.heapIndex = index;
+            index = parent;
+        }
+        timers[index] = timer;
+        timer.heapIndex = index;
+    }
+
+    private void siftDown(int index) {
+        Timer timer = timers[index];
+        int half = timerCount >> 1;
+        while(index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if(right < timerCount && timers[right].deadline - timers[child].deadline < 0) child = right;
+            Timer c = timers[child];
+            if(timer.deadline - c.deadline <= 0) break;
+            timers[index] = c;
+            c.heapIndex = index;
+            index = child;
+        }
+        timers[index] = timer;
+        timer.heapIndex = index;
+    }
+}
@@ -0,0 +1,15 @@
+package com.totalcross.carousel;
+
+/**
+ * Change to a {@link Carousel} posted from any thread with
+ * {@link Carousel#postUpdate(CarouselUpdate)}, applied later on the UI thread. An update is applied
+ * as a whole, so changes that must be seen together belong in the same update.
+ */
+public interface CarouselUpdate {
+
+    /**
+     * apply the change, called on the UI thread
+     * @param carousel
+     */
+    void apply(Carousel carousel);
+}
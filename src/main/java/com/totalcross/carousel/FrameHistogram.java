@@ -0,0 +1,78 @@
+package com.totalcross.carousel;
+
+/**
+ * In-memory histogram of frame intervals with one millisecond buckets. Recording is a bounds
+ * check and an array increment.
+ */
+public class FrameHistogram {
+    /** intervals at or above this value fall in the last bucket */
+    public static final int MAX_INTERVAL = 100;
+    private final int[] buckets = new int[MAX_INTERVAL + 1];
+    private int count;
+
+    /**
+     * record a frame interval
+     * @param interval in milliseconds
+     */
+    public void record(int interval) {
+        if(interval < 0) interval = 0;
+        if(interval > MAX_INTERVAL) interval = MAX_INTERVAL;
+        buckets[interval]++;
+        count++;
+    }
+
+    /**
+     * number of recorded frames
+     * @return
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * number of frames recorded with the given interval
+     * @param interval
+     * @return
+     */
+    public int getCount(int interval) {
+        return interval < 0 || interval > MAX_INTERVAL ? 0 : buckets[interval];
+    }
+
+    /**
+     * smallest interval greater or equal to the given fraction of the recorded frames
+     * @param fraction between 0 and 1
+     * @return
+     */
+    public int percentile(double fraction) {
+        int target = (int) Math.ceil(fraction * count);
+        int seen = 0;
+        for (int i = 0; i <= MAX_INTERVAL; i++) {
+            seen += buckets[i];
+            if(seen >= target && seen > 0) return i;
+        }
+        return 0;
+    }
+
+    /**
+     * clear every bucket
+     */
+    public void reset() {
+        for (int i = 0; i <= MAX_INTERVAL; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+    }
+
+    /**
+     * one line per non empty bucket, interval and count separated by a tab
+     * @return
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= MAX_INTERVAL; i++) {
+            if(buckets[i] == 0) continue;
+            sb.append(i == MAX_INTERVAL ? ">=" : "").append(i).append('\t').append(buckets[i]).append('\n');
+        }
+        return sb.toString();
+    }
+}
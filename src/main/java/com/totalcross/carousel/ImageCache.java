@@ -0,0 +1,121 @@
+package com.totalcross.carousel;
+
+import totalcross.ui.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded page bitmaps, shared by every {@link ImagePage}. The cache is bounded by the memory the
+ * bitmaps take, not by their count: when adding an image exceeds the budget, the least recently
+ * used ones are evicted. Only used from the UI thread.
+ */
+public final class ImageCache {
+    /** default budget, in bytes */
+    public static final int DEFAULT_MAX_BYTES = 24 * 1024 * 1024;
+    /** bytes taken by a pixel of a decoded image */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static ImageCache instance;
+
+    /** images in access order, the eldest first */
+    private final LinkedHashMap<String, Image> images = new LinkedHashMap<String, Image>(16, 0.75f, true);
+    private int maxBytes = DEFAULT_MAX_BYTES;
+    private int bytes;
+
+    private ImageCache() {
+    }
+
+    /**
+     * the shared cache
+     * @return
+     */
+    public static ImageCache getInstance() {
+        if(instance == null) instance = new ImageCache();
+        return instance;
+    }
+
+    /**
+     * get an image, marking it as the most recently used
+     * @param key
+     * @return null if the image is not cached
+     */
+    public Image get(String key) {
+        return images.get(key);
+    }
+
+    /**
+     * add an image, evicting the least recently used ones until the cache fits its budget. An
+     * image larger than the whole budget is not cached.
+     * @param key
+     * @param image
+     */
+    public void put(String key, Image image) {
+        int size = sizeOf(image);
+        if(size > maxBytes) return;
+        Image previous = images.put(key, image);
+        if(previous != null) bytes -= sizeOf(previous);
+        bytes += size;
+        trim();
+    }
+
+    /**
+     * remove an image
+     * @param key
+     */
+    public void remove(String key) {
+        Image image = images.remove(key);
+        if(image != null) bytes -= sizeOf(image);
+    }
+
+    /**
+     * remove every image
+     */
+    public void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    /**
+     * set the budget, evicting images if it is lower than the memory already taken
+     * @param maxBytes
+     */
+    public void setMaxBytes(int maxBytes) {
+        if(maxBytes < 0) throw new AssertionError("maxBytes must not be negative");
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * memory taken by the cached images
+     * @return
+     */
+    public int getBytes() {
+        return bytes;
+    }
+
+    /**
+     * number of cached images
+     * @return
+     */
+    public int size() {
+        return images.size();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Image>> eldest = images.entrySet().iterator();
+        while(bytes > maxBytes && eldest.hasNext()) {
+            bytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static int sizeOf(Image image) {
+        return image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+    }
+}
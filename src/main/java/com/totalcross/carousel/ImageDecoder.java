@@ -0,0 +1,208 @@
+package com.totalcross.carousel;
+
+import totalcross.io.IOException;
+import totalcross.ui.image.Image;
+import totalcross.ui.image.ImageException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Decodes the images of {@link ImagePage}s on a background thread, scaled to the size they are
+ * shown at. Decoded images are handed back on the UI thread, by a {@link CarouselScheduler}
+ * animation that only runs while decodes are outstanding, and stored in the {@link ImageCache}.
+ * Requests for pages on screen are decoded before prefetches, and only the most recent prefetches
+ * are kept when the pages scroll faster than they can be decoded.
+ */
+public final class ImageDecoder {
+    /** prefetches waiting to be decoded above which the oldest ones are dropped */
+    public static final int MAX_PENDING_PREFETCHES = 8;
+
+    private static ImageDecoder instance;
+
+    /** outstanding requests by key, only used from the UI thread */
+    private final HashMap<String, Request> requests = new HashMap<String, Request>();
+    /** requests waiting for the decoder thread, guarded by lock */
+    private final LinkedList<Request> pending = new LinkedList<Request>();
+    /** decoded requests waiting for the UI thread, guarded by lock */
+    private ArrayList<Request> decoded = new ArrayList<Request>();
+    private ArrayList<Request> delivering = new ArrayList<Request>();
+    private final Object lock = new Object();
+    private Thread thread;
+
+    /** hands decoded images back on the UI thread */
+    private final CarouselScheduler.Animation delivery = new CarouselScheduler.Animation() {
+        @Override
+        protected boolean step(int elapsed) {
+            deliver();
+            return !requests.isEmpty();
+        }
+    };
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * the shared decoder
+     * @return
+     */
+    public static ImageDecoder getInstance() {
+        if(instance == null) instance = new ImageDecoder();
+        return instance;
+    }
+
+    /**
+     * request an image to be decoded at the given size. Requests for a key already outstanding
+     * only add the page to the ones notified.
+     * @param page notified through {@link ImagePage#onImageDecoded(String, Image)}
+     * @param key cache key of the decoded image
+     * @param path image path, or null to decode data
+     * @param data encoded image
+     * @param width
+     * @param height
+     * @param urgent the page is on screen and is decoded before the prefetches
+     */
+    void decode(ImagePage page, String key, String path, byte[] data, int width, int height, boolean urgent) {
+        Request request = requests.get(key);
+        if(request != null) {
+            if(!request.pages.contains(page)) request.pages.add(page);
+            if(urgent && !request.urgent) {
+                synchronized (lock) {
+                    request.urgent = true;
+                    if(pending.remove(request)) pending.addFirst(request);
+                }
+            }
+            return;
+        }
+        request = new Request(key, path, data, width, height, urgent);
+        request.pages.add(page);
+        requests.put(key, request);
+        synchronized (lock) {
+            if(urgent) pending.addFirst(request);
+            else {
+                pending.addLast(request);
+                dropStalePrefetches();
+            }
+            if(thread == null) {
+                thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        work();
+                    }
+                }, "carousel-image-decoder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.start();
+            }
+            lock.notify();
+        }
+        CarouselScheduler.getInstance().start(delivery);
+    }
+
+    /**
+     * number of requests not yet handed back
+     * @return
+     */
+    public int getOutstandingCount() {
+        return requests.size();
+    }
+
+    private void dropStalePrefetches() {
+        int prefetches = 0;
+        for (Request r : pending) {
+            if(!r.urgent) prefetches++;
+        }
+        for (Iterator<Request> it = pending.iterator(); prefetches > MAX_PENDING_PREFETCHES && it.hasNext();) {
+            Request r = it.next();
+            if(!r.urgent) {
+                it.remove();
+                requests.remove(r.key);
+                prefetches--;
+            }
+        }
+    }
+
+    private void deliver() {
+        synchronized (lock) {
+            ArrayList<Request> swap = delivering;
+            delivering = decoded;
+            decoded = swap;
+        }
+        ImageCache cache = ImageCache.getInstance();
+        for (int i = 0, n = delivering.size(); i < n; i++) {
+            Request request = delivering.get(i);
+            requests.remove(request.key);
+            if(request.image != null) cache.put(request.key, request.image);
+            for (int j = 0; j < request.pages.size(); j++) {
+                request.pages.get(j).onImageDecoded(request.key, request.image);
+            }
+        }
+        delivering.clear();
+    }
+
+    private void work() {
+        while(true) {
+            Request request;
+            synchronized (lock) {
+                while(pending.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                request = pending.removeFirst();
+            }
+            request.image = decode(request);
+            synchronized (lock) {
+                decoded.add(request);
+            }
+        }
+    }
+
+    /**
+     * decode an image and scale it to cover the requested size, keeping its aspect ratio
+     * @param request
+     * @return null if the image could not be decoded
+     */
+    private static Image decode(Request request) {
+        try {
+            Image image = request.path != null ? new Image(request.path) : new Image(request.data);
+            int width = image.getWidth();
+            int height = image.getHeight();
+            double scale = Math.max((double) request.width / width, (double) request.height / height);
+            int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+            int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+            if(scaledWidth != width || scaledHeight != height) {
+                image = image.getSmoothScaledInstance(scaledWidth, scaledHeight);
+            }
+            return image;
+        } catch (ImageException | IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static class Request {
+        final String key;
+        final String path;
+        final byte[] data;
+        final int width, height;
+        /** pages notified once decoded, only used from the UI thread */
+        final ArrayList<ImagePage> pages = new ArrayList<ImagePage>(1);
+        boolean urgent;
+        /** written by the decoder thread before the request is handed back */
+        Image image;
+
+        Request(String key, String path, byte[] data, int width, int height, boolean urgent) {
+            this.key = key;
+            this.path = path;
+            this.data = data;
+            this.width = width;
+            this.height = height;
+            this.urgent = urgent;
+        }
+    }
+}
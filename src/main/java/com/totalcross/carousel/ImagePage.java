@@ -0,0 +1,190 @@
+package com.totalcross.carousel;
+
+import totalcross.ui.Control;
+import totalcross.ui.gfx.Graphics;
+import totalcross.ui.image.Image;
+
+/**
+ * Carousel page showing a full-bleed image. The image is decoded off the UI thread at the size of
+ * the page, scaled to cover it, and kept in the shared {@link ImageCache} instead of by the page, so
+ * the memory taken by many pages stays bounded. A visible page also holds the image it shows, so
+ * an image evicted while on screen, or too large for the cache, is not decoded again on every
+ * paint. A placeholder is painted until it is decoded.
+ * The same page can be rebound to other images, as a pooled page of a {@link CarouselItemProvider}.
+ */
+public class ImagePage extends Control {
+    /** default placeholder color */
+    public static final int DEFAULT_PLACEHOLDER_COLOR = 0xEEEEEE;
+
+    private static int nextDataId;
+
+    protected String path;
+    protected byte[] data;
+    protected int placeholderColor = DEFAULT_PLACEHOLDER_COLOR;
+    /** identifies the image in the cache keys */
+    private String id;
+    /** key whose decoding failed, not requested again */
+    private String failedKey;
+    /** image shown while the page is visible, and its key */
+    private Image shown;
+    private String shownKey;
+
+    /**
+     * Constructor of an empty page, bound later with {@link #setImage(String)} or
+     * {@link #setImage(byte[])}
+     */
+    public ImagePage() {
+    }
+
+    /**
+     * Constructor
+     * @param path image file or resource
+     */
+    public ImagePage(String path) {
+        setImage(path);
+    }
+
+    /**
+     * Constructor
+     * @param data encoded image
+     */
+    public ImagePage(byte[] data) {
+        setImage(data);
+    }
+
+    /**
+     * show the image at path
+     * @param path image file or resource
+     */
+    public void setImage(String path) {
+        this.path = path;
+        this.data = null;
+        id = path;
+        failedKey = null;
+        shown = null;
+        repaint();
+    }
+
+    /**
+     * show an encoded image
+     * @param data
+     */
+    public void setImage(byte[] data) {
+        this.path = null;
+        this.data = data;
+        id = data != null ? "#" + (++nextDataId) : null;
+        failedKey = null;
+        shown = null;
+        repaint();
+    }
+
+    public void setPlaceholderColor(int placeholderColor) {
+        this.placeholderColor = placeholderColor;
+        repaint();
+    }
+
+    public int getPlaceholderColor() {
+        return placeholderColor;
+    }
+
+    /**
+     * whether the image is decoded at the current size of the page
+     * @return
+     */
+    public boolean isLoaded() {
+        return getImage(getKey(width, height)) != null;
+    }
+
+    /**
+     * start decoding the image at the given size, if it is not cached yet
+     * @param width
+     * @param height
+     */
+    public void prefetch(int width, int height) {
+        load(width, height, false);
+    }
+
+    /**
+     * request the image at the given size
+     * @param width
+     * @param height
+     * @param urgent the page is on screen
+     */
+    protected void load(int width, int height, boolean urgent) {
+        String key = getKey(width, height);
+        if(key == null || key.equals(failedKey) || ImageCache.getInstance().get(key) != null) return;
+        ImageDecoder.getInstance().decode(this, key, path, data, width, height, urgent);
+    }
+
+    /**
+     * cache key of the image at a size
+     * @param width
+     * @param height
+     * @return null if there is no image or the size is empty
+     */
+    protected String getKey(int width, int height) {
+        if(id == null || width <= 0 || height <= 0) return null;
+        return id + '@' + width + 'x' + height;
+    }
+
+    /**
+     * called on the UI thread when a requested image is decoded
+     * @param key
+     * @param image null if the image could not be decoded
+     */
+    protected void onImageDecoded(String key, Image image) {
+        if(!key.equals(getKey(width, height))) return;
+        if(image == null) failedKey = key;
+        else {
+            // the cache may not have kept it
+            if(isVisible()) show(key, image);
+            repaint();
+        }
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        // a hidden page leaves its image to the cache
+        if(!visible) shown = null;
+    }
+
+    /**
+     * the decoded image of a key, from the cache or held by the page
+     * @param key
+     * @return null if it is not decoded
+     */
+    private Image getImage(String key) {
+        if(key == null) return null;
+        Image image = ImageCache.getInstance().get(key);
+        if(image == null && shown != null && key.equals(shownKey)) image = shown;
+        return image;
+    }
+
+    private void show(String key, Image image) {
+        shown = image;
+        shownKey = key;
+    }
+
+    @Override
+    public void onPaint(Graphics g) {
+        String key = getKey(width, height);
+        Image image = getImage(key);
+        if(image == null) {
+            paintPlaceholder(g);
+            if(key != null) load(width, height, true);
+            return;
+        }
+        show(key, image);
+        g.drawImage(image, (width - image.getWidth()) / 2, (height - image.getHeight()) / 2);
+    }
+
+    /**
+     * paint the page while its image is not decoded
+     * @param g
+     */
+    protected void paintPlaceholder(Graphics g) {
+        g.backColor = placeholderColor;
+        g.fillRect(0, 0, width, height);
+    }
+}
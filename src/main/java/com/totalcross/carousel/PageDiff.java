@@ -0,0 +1,44 @@
+package com.totalcross.carousel;
+
+/**
+ * Move detection for keyed page updates. Given, for each page of the new list, its position in the
+ * old list, the pages of a longest increasing subsequence of those positions keep their relative
+ * order and stay in place; only the other ones are moved. Computed by patience sorting in
+ * O(n log n).
+ */
+final class PageDiff {
+
+    private PageDiff() {
+    }
+
+    /**
+     * pages that do not need to move
+     * @param oldPositions position in the old list of each page of the new list, -1 for new pages
+     * @return true for the pages in a longest increasing subsequence of the old positions
+     */
+    static boolean[] stablePages(int[] oldPositions) {
+        int n = oldPositions.length;
+        // tails[k] is the index of the smallest tail of an increasing subsequence of length k + 1
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int position = oldPositions[i];
+            if(position < 0) continue;
+            int low = 0, high = length;
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(oldPositions[tails[middle]] < position) low = middle + 1;
+                else high = middle;
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if(low == length) length++;
+        }
+        boolean[] stable = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            stable[i] = true;
+        }
+        return stable;
+    }
+}
@@ -0,0 +1,97 @@
+package com.totalcross.carousel;
+
+import totalcross.ui.Control;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+
+/**
+ * Ordered pages of a {@link Carousel} with an identity index from each control to its position.
+ * The index is rebuilt lazily, once after any number of mutations, so looking a page up is O(1)
+ * and a batch of insertions or removals costs a single pass.
+ */
+final class PageModel {
+    private final ArrayList<Control> pages = new ArrayList<Control>();
+    /** position of each page, valid while indexed is set */
+    private final IdentityHashMap<Control, Integer> positions = new IdentityHashMap<Control, Integer>();
+    private boolean indexed = true;
+
+    int size() {
+        return pages.size();
+    }
+
+    Control get(int index) {
+        return pages.get(index);
+    }
+
+    /**
+     * position of a page
+     * @param page
+     * @return -1 if it is not a page
+     */
+    int indexOf(Control page) {
+        if(!indexed) reindex();
+        Integer position = positions.get(page);
+        return position != null ? position : -1;
+    }
+
+    boolean contains(Control page) {
+        return indexOf(page) >= 0;
+    }
+
+    void add(int index, Control page) {
+        pages.add(index, page);
+        // appending keeps the positions of the other pages
+        if(indexed && index == pages.size() - 1) positions.put(page, index);
+        else indexed = false;
+    }
+
+    void addAll(int index, Collection<Control> added) {
+        boolean append = index == pages.size();
+        pages.addAll(index, added);
+        if(indexed && append) {
+            for (Control page : added) {
+                positions.put(page, index++);
+            }
+        }
+        else indexed = false;
+    }
+
+    Control remove(int index) {
+        Control page = pages.remove(index);
+        if(indexed && index == pages.size()) positions.remove(page);
+        else indexed = false;
+        return page;
+    }
+
+    /**
+     * remove the pages from index, inclusive, to end, exclusive
+     * @param index
+     * @param end
+     */
+    void removeRange(int index, int end) {
+        pages.subList(index, end).clear();
+        indexed = false;
+    }
+
+    void move(int from, int to) {
+        if(from == to) return;
+        pages.add(to, pages.remove(from));
+        indexed = false;
+    }
+
+    void clear() {
+        pages.clear();
+        positions.clear();
+        indexed = true;
+    }
+
+    private void reindex() {
+        positions.clear();
+        for (int i = 0, n = pages.size(); i < n; i++) {
+            positions.put(pages.get(i), i);
+        }
+        indexed = true;
+    }
+}
@@ -0,0 +1,123 @@
+package com.totalcross.carousel;
+
+/**
+ * Frame-time metrics of a single carousel transition. Times are in milliseconds.
+ */
+public class TransitionMetrics {
+    /**
+     * frame interval considered on budget, 60 frames per second by default. A longer target
+     * frame interval of the {@link CarouselScheduler} takes precedence.
+     */
+    protected int frameBudget = 16;
+    int direction;
+    int frameCount;
+    int minFrameInterval;
+    int maxFrameInterval;
+    int totalFrameInterval;
+    int droppedFrames;
+    int stepTime;
+    int paintTime;
+    /** intervals of every measured frame, accumulated across transitions */
+    private final FrameHistogram histogram = new FrameHistogram();
+
+    void start(int direction) {
+        this.direction = direction;
+        frameCount = 0;
+        minFrameInterval = Integer.MAX_VALUE;
+        maxFrameInterval = 0;
+        totalFrameInterval = 0;
+        droppedFrames = 0;
+        stepTime = 0;
+        paintTime = 0;
+    }
+
+    void frame(int interval) {
+        frameCount++;
+        totalFrameInterval += interval;
+        if(interval < minFrameInterval) minFrameInterval = interval;
+        if(interval > maxFrameInterval) maxFrameInterval = interval;
+        int budget = Math.max(frameBudget, CarouselScheduler.getInstance().getFrameInterval());
+        if(interval > budget) droppedFrames += (interval + budget / 2) / budget - 1;
+        histogram.record(interval);
+    }
+
+    /**
+     * set the frame interval considered on budget
+     * @param frameBudget
+     */
+    public void setFrameBudget(int frameBudget) {
+        this.frameBudget = frameBudget;
+    }
+
+    /**
+     * direction of the transition
+     * @return
+     */
+    public int getDirection() {
+        return direction;
+    }
+
+    /**
+     * number of frames rendered
+     * @return
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * shortest interval between two frames
+     * @return
+     */
+    public int getMinFrameInterval() {
+        return frameCount == 0 ? 0 : minFrameInterval;
+    }
+
+    /**
+     * longest interval between two frames
+     * @return
+     */
+    public int getMaxFrameInterval() {
+        return maxFrameInterval;
+    }
+
+    /**
+     * average interval between two frames
+     * @return
+     */
+    public double getAverageFrameInterval() {
+        return frameCount == 0 ? 0 : (double) totalFrameInterval / frameCount;
+    }
+
+    /**
+     * estimated number of frames missed because an interval went over the frame budget
+     * @return
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * time spent positioning children in singleStep
+     * @return
+     */
+    public int getStepTime() {
+        return stepTime;
+    }
+
+    /**
+     * time spent in paintChildren while the transition ran
+     * @return
+     */
+    public int getPaintTime() {
+        return paintTime;
+    }
+
+    /**
+     * histogram of frame intervals of every transition measured so far
+     * @return
+     */
+    public FrameHistogram getHistogram() {
+        return histogram;
+    }
+}
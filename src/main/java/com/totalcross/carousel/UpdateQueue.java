@@ -0,0 +1,73 @@
+package com.totalcross.carousel;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multiple producer, single consumer queue of {@link CarouselUpdate}s. Producers push on
+ * a Treiber stack with a single compare-and-set and never block; the UI thread takes the whole
+ * stack at once and reverses it, which restores the posting order.
+ */
+final class UpdateQueue {
+    private final AtomicReference<Node> posted = new AtomicReference<Node>();
+    /** updates taken from the stack and not applied yet, in posting order, only used by the consumer */
+    private Node first, last;
+
+    /**
+     * add an update, from any thread
+     * @param update
+     */
+    void offer(CarouselUpdate update) {
+        Node node = new Node(update);
+        Node head;
+        do {
+            head = posted.get();
+            node.next = head;
+        } while(!posted.compareAndSet(head, node));
+    }
+
+    /**
+     * next update in posting order, from the UI thread
+     * @return null if the queue is empty
+     */
+    CarouselUpdate poll() {
+        if(first == null) takePosted();
+        if(first == null) return null;
+        Node node = first;
+        first = node.next;
+        if(first == null) last = null;
+        return node.update;
+    }
+
+    /**
+     * whether updates are waiting, from the UI thread
+     * @return
+     */
+    boolean isEmpty() {
+        return first == null && posted.get() == null;
+    }
+
+    private void takePosted() {
+        Node node = posted.getAndSet(null);
+        if(node == null) return;
+        // the stack holds the latest update first
+        Node reversed = null, tail = node;
+        while(node != null) {
+            Node next = node.next;
+            node.next = reversed;
+            reversed = node;
+            node = next;
+        }
+        if(last == null) first = reversed;
+        else last.next = reversed;
+        last = tail;
+    }
+
+    private static final class Node {
+        final CarouselUpdate update;
+        Node next;
+
+        Node(CarouselUpdate update) {
+            this.update = update;
+        }
+    }
+}